@@ -1,6 +1,8 @@
 package com.emu.toolkit.controller;
 
 import com.emu.toolkit.model.AppConfig;
+import com.emu.toolkit.model.ResolutionPolicy;
+import com.emu.toolkit.service.CatalogCacheService;
 import com.emu.toolkit.service.ConfigPersistenceService;
 import com.emu.toolkit.service.DownloadService;
 import com.emu.toolkit.service.RomScraperService;
@@ -47,18 +49,28 @@ public class ApplicationController {
 
         // Create services
         this.executorService = Executors.newCachedThreadPool();
-        this.romScraperService = new RomScraperService(executorService);
+        this.romScraperService = new RomScraperService(executorService, new CatalogCacheService());
+        romScraperService.setFuzzyThreshold(appConfig.getFuzzyThreshold());
         this.downloadService = new DownloadService();
+        downloadService.setConcurrencyBounds(appConfig.getMinParallelDownloads(), appConfig.getMaxParallelDownloads());
+        downloadService.setMaxConnectionsPerHost(appConfig.getMaxConnectionsPerHost());
+        downloadService.setBandwidthLimits(appConfig);
+        downloadService.setDatFiles(appConfig.getDatFiles());
+        downloadService.setExtractionOptions(appConfig);
+        downloadService.restoreQueue();
 
         // Create view models
         this.configViewModel = new ConfigViewModel(romScraperService, downloadService);
 
         // Set the download folder in the view model
         configViewModel.downloadFolderProperty().set(appConfig.getLastDownloadFolder());
+        configViewModel.setCatalogMemoryBudgetMb(appConfig.getCatalogMemoryBudgetMb());
 
         // Create remaining view models
         this.searchViewModel = new SearchViewModel(romScraperService, downloadService, configViewModel);
         this.batchViewModel = new BatchViewModel(romScraperService, downloadService, configViewModel);
+        batchViewModel.setSearchConcurrency(appConfig.getBatchSearchConcurrency());
+        batchViewModel.setResolutionPolicy(ResolutionPolicy.fromConfig(appConfig));
         this.downloadViewModel = new DownloadViewModel(downloadService);
 
         // Create and set up main view with app config
@@ -76,12 +88,15 @@ public class ApplicationController {
 
         // If we're not in advanced mode and there's a selected platform, connect to it
         if (!appConfig.isAdvancedMode() && appConfig.getSelectedPlatform() != null) {
-            configViewModel.urlProperty().set(appConfig.getSelectedPlatform().getUrl());
-            configViewModel.connectToUrl(success -> {
+            configViewModel.connectToPlatform(appConfig.getSelectedPlatform(), success -> {
                 // Connection status will be shown in the UI
             });
         }
 
+        // Load the remaining platform catalogs in the background
+        configViewModel.warmUpCatalogs(appConfig.getConfiguredPlatforms(),
+                appConfig.isAdvancedMode() ? null : appConfig.getSelectedPlatform());
+
         // Set up proper shutdown handling
         primaryStage.setOnCloseRequest(event -> {
             shutdown();
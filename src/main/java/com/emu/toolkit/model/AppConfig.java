@@ -5,6 +5,8 @@ import javafx.collections.ObservableList;
 import lombok.Getter;
 import lombok.Setter;
 
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -19,6 +21,29 @@ public class AppConfig {
     @Setter private boolean wizardShown = false;
     @Setter private String lastDownloadFolder = "";
     @Setter private PlatformConfig selectedPlatform = null;
+    @Setter private int fuzzyThreshold = 70;
+    @Setter private int catalogMemoryBudgetMb = 0;
+    @Setter private int minParallelDownloads = 2;
+    @Setter private int maxParallelDownloads = 16;
+    @Setter private int maxConnectionsPerHost = 4;
+    @Setter private int globalBandwidthLimitKbps = 0;
+    @Setter private int perDownloadBandwidthLimitKbps = 0;
+    @Setter private boolean bandwidthScheduleEnabled = false;
+    @Setter private String bandwidthScheduleStart = "09:00";
+    @Setter private String bandwidthScheduleEnd = "17:00";
+    @Setter private int batchSearchConcurrency = 4;
+    // Automatic choice among several matches of a batch title, see ResolutionPolicy
+    @Setter private boolean autoResolveMatches = false;
+    @Setter private String resolveRegionPriority = "USA, World, Europe, Japan";
+    @Setter private boolean resolvePreferLatestRevision = true;
+    @Setter private boolean resolvePreferVerified = true;
+    @Setter private String resolveExcludeKeywords = "Beta, Proto, Demo, Sample, Kiosk";
+    @Setter private int resolveMinScoreMargin = 10;
+    @Setter private boolean extractArchives = false;
+    @Setter private boolean deleteArchivesAfterExtraction = false;
+    @Setter private boolean streamZipExtraction = false;
+    // DAT files downloads are verified against
+    @Setter private List<String> datFiles = new ArrayList<>();
 
     public AppConfig() {
         initDefaultPlatforms();
@@ -85,6 +110,17 @@ public class AppConfig {
         return configured;
     }
 
+    /**
+     * Parse an HH:mm time of day, null if the text is not a valid time
+     */
+    public static LocalTime parseTimeOfDay(String text) {
+        try {
+            return text != null ? LocalTime.parse(text.trim()) : null;
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
     /**
      * Convert the configuration to a Map for JSON serialization
      */
@@ -96,6 +132,27 @@ public class AppConfig {
         map.put("advancedMode", advancedMode);
         map.put("wizardShown", wizardShown);
         map.put("lastDownloadFolder", lastDownloadFolder);
+        map.put("fuzzyThreshold", fuzzyThreshold);
+        map.put("catalogMemoryBudgetMb", catalogMemoryBudgetMb);
+        map.put("minParallelDownloads", minParallelDownloads);
+        map.put("maxParallelDownloads", maxParallelDownloads);
+        map.put("maxConnectionsPerHost", maxConnectionsPerHost);
+        map.put("globalBandwidthLimitKbps", globalBandwidthLimitKbps);
+        map.put("perDownloadBandwidthLimitKbps", perDownloadBandwidthLimitKbps);
+        map.put("bandwidthScheduleEnabled", bandwidthScheduleEnabled);
+        map.put("bandwidthScheduleStart", bandwidthScheduleStart);
+        map.put("bandwidthScheduleEnd", bandwidthScheduleEnd);
+        map.put("batchSearchConcurrency", batchSearchConcurrency);
+        map.put("autoResolveMatches", autoResolveMatches);
+        map.put("resolveRegionPriority", resolveRegionPriority);
+        map.put("resolvePreferLatestRevision", resolvePreferLatestRevision);
+        map.put("resolvePreferVerified", resolvePreferVerified);
+        map.put("resolveExcludeKeywords", resolveExcludeKeywords);
+        map.put("resolveMinScoreMargin", resolveMinScoreMargin);
+        map.put("extractArchives", extractArchives);
+        map.put("deleteArchivesAfterExtraction", deleteArchivesAfterExtraction);
+        map.put("streamZipExtraction", streamZipExtraction);
+        map.put("datFiles", datFiles);
 
         List<Map<String, String>> platformList = new ArrayList<>();
         for (PlatformConfig platform : platforms) {
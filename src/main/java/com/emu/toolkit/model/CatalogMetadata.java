@@ -0,0 +1,145 @@
+package com.emu.toolkit.model;
+
+import com.emu.toolkit.util.RomNameParser;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Structured fields of every entry of a {@link RomCatalog}, parsed once when the catalog
+ * is indexed. Fields are stored column-wise by entry id, and titles and revision keys are
+ * interned to small integer ids, so filtering never has to touch the names again.
+ */
+public class CatalogMetadata {
+    private final int[] titleIds;
+    private final int[] revisionGroupIds;
+    private final int[] releaseIds;
+    private final int revisionGroupCount;
+    private final int[] regionMasks;
+    private final int[] languageMasks;
+    private final int[] revisions;
+    private final int[] flags;
+    private final String[] titles;
+
+    private CatalogMetadata(int[] titleIds, int[] revisionGroupIds, int[] releaseIds, int revisionGroupCount,
+                            int[] regionMasks, int[] languageMasks, int[] revisions, int[] flags,
+                            String[] titles) {
+        this.titleIds = titleIds;
+        this.revisionGroupIds = revisionGroupIds;
+        this.releaseIds = releaseIds;
+        this.revisionGroupCount = revisionGroupCount;
+        this.regionMasks = regionMasks;
+        this.languageMasks = languageMasks;
+        this.revisions = revisions;
+        this.flags = flags;
+        this.titles = titles;
+    }
+
+    public static CatalogMetadata parse(RomCatalog catalog) {
+        int size = catalog.size();
+        int[] titleIds = new int[size];
+        int[] revisionGroupIds = new int[size];
+        int[] releaseIds = new int[size];
+        int[] regionMasks = new int[size];
+        int[] languageMasks = new int[size];
+        int[] revisions = new int[size];
+        int[] flags = new int[size];
+
+        Map<String, Integer> titleLookup = new HashMap<>();
+        List<String> titles = new ArrayList<>();
+        Map<String, Integer> revisionGroupLookup = new HashMap<>();
+        Map<String, Integer> releaseLookup = new HashMap<>();
+
+        for (int id = 0; id < size; id++) {
+            RomNameParser.ParsedName parsed = RomNameParser.parse(catalog.getName(id));
+
+            titleIds[id] = titleLookup.computeIfAbsent(parsed.getTitle(), title -> {
+                titles.add(title);
+                return titles.size() - 1;
+            });
+            revisionGroupIds[id] = revisionGroupLookup.computeIfAbsent(parsed.getRevisionKey(),
+                    key -> revisionGroupLookup.size());
+            releaseIds[id] = releaseLookup.computeIfAbsent(parsed.getReleaseKey(), key -> releaseLookup.size());
+            regionMasks[id] = parsed.getRegionMask();
+            languageMasks[id] = parsed.getLanguageMask();
+            revisions[id] = parsed.getRevision();
+            flags[id] = parsed.getFlags();
+        }
+
+        return new CatalogMetadata(titleIds, revisionGroupIds, releaseIds, revisionGroupLookup.size(),
+                regionMasks, languageMasks, revisions, flags, titles.toArray(new String[0]));
+    }
+
+    public int size() {
+        return titleIds.length;
+    }
+
+    /**
+     * Id shared by every release of the same game
+     */
+    public int getTitleId(int id) {
+        return titleIds[id];
+    }
+
+    /**
+     * Canonical (lowercased) title for a title id
+     */
+    public String getTitle(int titleId) {
+        return titles[titleId];
+    }
+
+    public int getTitleCount() {
+        return titles.length;
+    }
+
+    /**
+     * Id shared by every revision of the same disc of a release, single-disc releases have one
+     */
+    public int getRevisionGroupId(int id) {
+        return revisionGroupIds[id];
+    }
+
+    public int getRevisionGroupCount() {
+        return revisionGroupCount;
+    }
+
+    /**
+     * Id shared by every disc and revision of the same release
+     */
+    public int getReleaseId(int id) {
+        return releaseIds[id];
+    }
+
+    public int getRegionMask(int id) {
+        return regionMasks[id];
+    }
+
+    public int getLanguageMask(int id) {
+        return languageMasks[id];
+    }
+
+    public int getRevision(int id) {
+        return revisions[id];
+    }
+
+    public int getFlags(int id) {
+        return flags[id];
+    }
+
+    public boolean hasFlag(int id, int flag) {
+        return (flags[id] & flag) != 0;
+    }
+
+    /**
+     * Approximate heap footprint in bytes, titles included
+     */
+    public long estimatedBytes() {
+        long bytes = 28L * titleIds.length + 64;
+        for (String title : titles) {
+            bytes += 40 + title.length();
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,127 @@
+package com.emu.toolkit.model;
+
+import com.emu.toolkit.util.Checksums;
+import com.emu.toolkit.util.DatParser;
+import lombok.Getter;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Known-good checksums from imported DAT files, looked up by rom file name or by game.
+ * DATs list the files inside a game, so a zipped mirror's archive is found by its game name
+ * (the archive name without extension) and never by {@link #get}.
+ */
+public class DatIndex {
+    public static final DatIndex EMPTY = new DatIndex(Collections.emptyMap());
+
+    private final Map<String, Entry> entriesByName;
+    private final Map<String, List<Entry>> entriesByGame = new HashMap<>();
+
+    private DatIndex(Map<String, Entry> entriesByName) {
+        this.entriesByName = entriesByName;
+        for (Entry entry : entriesByName.values()) {
+            if (entry.getGameName() != null) {
+                entriesByGame.computeIfAbsent(entry.getGameName(), key -> new ArrayList<>()).add(entry);
+            }
+        }
+    }
+
+    /**
+     * Parse and merge DAT files, an entry of a later file wins over one of the same name.
+     * Files that can't be read are skipped.
+     */
+    public static DatIndex load(Collection<File> datFiles) {
+        Map<String, Entry> entries = new HashMap<>();
+        for (File datFile : datFiles) {
+            try (InputStream in = new BufferedInputStream(new FileInputStream(datFile))) {
+                DatParser.parse(in, entry -> entries.put(entry.getName(), entry));
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        return entries.isEmpty() ? EMPTY : new DatIndex(entries);
+    }
+
+    /**
+     * The entry for a file name, or null if no DAT lists it
+     */
+    public Entry get(String filename) {
+        return entriesByName.get(filename);
+    }
+
+    /**
+     * The roms of a game, empty if no DAT lists it
+     */
+    public List<Entry> getGame(String gameName) {
+        return entriesByGame.getOrDefault(gameName, Collections.emptyList());
+    }
+
+    public int size() {
+        return entriesByName.size();
+    }
+
+    /**
+     * One rom of a DAT, checksums are lowercase hex and null when the DAT doesn't list them
+     */
+    @Getter
+    public static class Entry {
+        private final String gameName;
+        private final String name;
+        private final long size;
+        private final String crc32;
+        private final String md5;
+        private final String sha1;
+
+        public Entry(String gameName, String name, long size, String crc32, String md5, String sha1) {
+            this.gameName = gameName;
+            this.name = name;
+            this.size = size;
+            this.crc32 = normalize(crc32);
+            this.md5 = normalize(md5);
+            this.sha1 = normalize(sha1);
+        }
+
+        private static String normalize(String checksum) {
+            return checksum == null || checksum.isBlank() ? null : checksum.trim().toLowerCase();
+        }
+
+        /**
+         * Start checksums for exactly the algorithms this entry can be checked against
+         */
+        public Checksums newChecksums() {
+            return new Checksums(crc32 != null, md5 != null, sha1 != null);
+        }
+
+        /**
+         * Whether any checksum the DAT lists was computed, e.g. a resumed download only has a CRC32
+         */
+        public boolean canCheck(Checksums checksums) {
+            return crc32 != null && checksums.getCrc32() != null
+                    || md5 != null && checksums.getMd5() != null
+                    || sha1 != null && checksums.getSha1() != null;
+        }
+
+        /**
+         * Whether data with these checksums is this rom, every checksum both the DAT and the
+         * data have must agree
+         */
+        public boolean matches(Checksums checksums) {
+            if (size >= 0 && size != checksums.getLength()) {
+                return false;
+            }
+            return (crc32 == null || checksums.getCrc32() == null || crc32.equals(checksums.getCrc32()))
+                    && (md5 == null || checksums.getMd5() == null || md5.equals(checksums.getMd5()))
+                    && (sha1 == null || checksums.getSha1() == null || sha1.equals(checksums.getSha1()));
+        }
+    }
+}
@@ -1,15 +1,35 @@
 package com.emu.toolkit.model;
 
+import com.emu.toolkit.util.TokenBucket;
 import javafx.beans.property.*;
 import lombok.Getter;
+import lombok.Setter;
+
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Represents a single download task with observable properties for UI binding.
  */
 public class DownloadTask {
 
+    /**
+     * Whether a downloaded file matched its DAT entry, UNVERIFIED if no DAT lists it
+     */
+    public enum Verification {
+        UNVERIFIED, VERIFIED, MISMATCH
+    }
+
     @Getter private final String url;
     @Getter private final String destination;
+    // Bandwidth limit of this download alone, unlimited by default
+    @Getter private final TokenBucket bandwidthLimit = new TokenBucket(0);
+    // Transfer counters written by the download thread, the UI properties below are
+    // refreshed from them once per frame
+    private final AtomicLong bytesDone = new AtomicLong();
+    @Getter @Setter private volatile long totalBytes = -1;
+    @Getter @Setter private volatile int connections = 1;
+    // Outcome of checking the finished file against the imported DATs
+    @Getter @Setter private volatile Verification verification = Verification.UNVERIFIED;
     private final StringProperty filename;
     private final DoubleProperty progress;
     private final StringProperty status;
@@ -22,6 +42,14 @@ public class DownloadTask {
         this.status = new SimpleStringProperty("Queued");
     }
 
+    public long getBytesDone() {
+        return bytesDone.get();
+    }
+
+    public void setBytesDone(long bytes) {
+        bytesDone.set(bytes);
+    }
+
     public String getFilename() {
         return filename.get();
     }
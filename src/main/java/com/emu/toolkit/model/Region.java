@@ -0,0 +1,73 @@
+package com.emu.toolkit.model;
+
+import lombok.Getter;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Release regions as used in No-Intro and Redump file names.
+ * Each region owns one bit, so the regions of a ROM are stored as an int mask.
+ */
+public enum Region {
+    WORLD("World", "W"),
+    USA("USA", "U", "US"),
+    EUROPE("Europe", "E", "EUR"),
+    JAPAN("Japan", "J", "JPN"),
+    ASIA("Asia"),
+    AUSTRALIA("Australia", "AUS"),
+    BRAZIL("Brazil", "BRA"),
+    CANADA("Canada", "CAN"),
+    CHINA("China", "CHN"),
+    FRANCE("France", "FRA"),
+    GERMANY("Germany", "GER"),
+    HONG_KONG("Hong Kong", "HK"),
+    ITALY("Italy", "ITA"),
+    KOREA("Korea", "KOR"),
+    NETHERLANDS("Netherlands", "NLD"),
+    RUSSIA("Russia", "RUS"),
+    SPAIN("Spain", "SPA"),
+    SWEDEN("Sweden", "SWE"),
+    TAIWAN("Taiwan", "TWN"),
+    UK("UK");
+
+    private static final Map<String, Region> BY_NAME = new HashMap<>();
+
+    static {
+        for (Region region : values()) {
+            BY_NAME.put(region.label.toLowerCase(Locale.ROOT), region);
+            for (String alias : region.aliases) {
+                BY_NAME.put(alias.toLowerCase(Locale.ROOT), region);
+            }
+        }
+    }
+
+    @Getter private final String label;
+    private final String[] aliases;
+
+    Region(String label, String... aliases) {
+        this.label = label;
+        this.aliases = aliases;
+    }
+
+    public int bit() {
+        return 1 << ordinal();
+    }
+
+    /**
+     * Look up a region by its file name label or a short code such as "EUR", null if unknown
+     */
+    public static Region fromName(String name) {
+        return name == null ? null : BY_NAME.get(name.trim().toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Mask of the regions that satisfy a region selection, a ROM released worldwide
+     * matches every selection. Returns 0 for no selection.
+     */
+    public static int selectionMask(String selection) {
+        Region region = fromName(selection);
+        return region == null ? 0 : region.bit() | WORLD.bit();
+    }
+}
@@ -0,0 +1,243 @@
+package com.emu.toolkit.model;
+
+import com.emu.toolkit.util.RomNameParser;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Rules for picking one ROM out of several releases of the same game (1G1R). Every
+ * candidate gets a score from its regions, revision and dump flags, and the best one is
+ * chosen if it leads the runner-up by at least the minimum margin. Candidates with an excluded
+ * keyword in one of their tags, and bad dumps, are never chosen. Keywords are matched as whole
+ * words inside the (...) and [...] tags only, so "Demo" excludes "Game (Kiosk Demo)" but not
+ * "Demolition Man (USA)".
+ */
+@Getter
+public class ResolutionPolicy {
+    /** Policy that never decides, every ambiguous title is left for manual selection */
+    public static final ResolutionPolicy MANUAL = new ResolutionPolicy(false, Collections.emptyList(),
+            false, false, Collections.emptyList(), 0);
+
+    // Weights keep region ahead of revision ahead of verified dumps. The highest priority
+    // region scores most, each following region one step less
+    private static final int REGION_STEP = 1000;
+    private static final int REVISION_STEP = 20;
+    private static final int MAX_SCORED_REVISION = 9;
+    private static final int VERIFIED_BONUS = 15;
+    private static final int PRERELEASE_PENALTY = 500;
+    private static final int PRERELEASE_FLAGS = RomNameParser.FLAG_BETA | RomNameParser.FLAG_PROTO
+            | RomNameParser.FLAG_DEMO | RomNameParser.FLAG_SAMPLE | RomNameParser.FLAG_PIRATE;
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final boolean enabled;
+    private final List<Region> regionPriority;
+    private final boolean preferLatestRevision;
+    private final boolean preferVerified;
+    // Lowercased
+    private final List<String> excludeKeywords;
+    private final int minScoreMargin;
+    // The keywords split into words, and the parser flags of those that name one
+    @Getter(AccessLevel.NONE) private final List<String[]> excludeWords;
+    @Getter(AccessLevel.NONE) private final int excludeFlags;
+
+    public ResolutionPolicy(boolean enabled, List<Region> regionPriority, boolean preferLatestRevision,
+                            boolean preferVerified, List<String> excludeKeywords, int minScoreMargin) {
+        this.enabled = enabled;
+        this.regionPriority = List.copyOf(regionPriority);
+        this.preferLatestRevision = preferLatestRevision;
+        this.preferVerified = preferVerified;
+        List<String> keywords = new ArrayList<>();
+        List<String[]> words = new ArrayList<>();
+        int flags = 0;
+        for (String keyword : excludeKeywords) {
+            String lower = keyword.trim().toLowerCase(Locale.ROOT);
+            String[] keywordWords = words(lower);
+            if (keywordWords.length > 0) {
+                keywords.add(lower);
+                words.add(keywordWords);
+                flags |= keywordFlag(lower);
+            }
+        }
+        this.excludeKeywords = List.copyOf(keywords);
+        this.excludeWords = List.copyOf(words);
+        this.excludeFlags = flags;
+        this.minScoreMargin = Math.max(0, minScoreMargin);
+    }
+
+    public static ResolutionPolicy fromConfig(AppConfig appConfig) {
+        return new ResolutionPolicy(
+                appConfig.isAutoResolveMatches(),
+                parseRegions(appConfig.getResolveRegionPriority()),
+                appConfig.isResolvePreferLatestRevision(),
+                appConfig.isResolvePreferVerified(),
+                List.of(appConfig.getResolveExcludeKeywords().split(",")),
+                appConfig.getResolveMinScoreMargin());
+    }
+
+    /**
+     * Regions of a comma separated list such as "USA, World, Europe", unknown names are skipped
+     */
+    public static List<Region> parseRegions(String list) {
+        List<Region> regions = new ArrayList<>();
+        if (list != null) {
+            for (String name : list.split(",")) {
+                Region region = Region.fromName(name);
+                if (region != null && !regions.contains(region)) {
+                    regions.add(region);
+                }
+            }
+        }
+        return regions;
+    }
+
+    /**
+     * Whether a ROM may never be chosen: a bad dump, parsed with the flag of an excluded keyword,
+     * or with an excluded keyword as whole words in one of its tags
+     */
+    public boolean isExcluded(String name, int flags) {
+        if ((flags & (RomNameParser.FLAG_BAD_DUMP | excludeFlags)) != 0) {
+            return true;
+        }
+        if (excludeWords.isEmpty() || name.indexOf('(') < 0 && name.indexOf('[') < 0) {
+            return false;
+        }
+        for (String tag : RomNameParser.tags(name)) {
+            String[] tagWords = words(tag.toLowerCase(Locale.ROOT));
+            for (String[] keywordWords : excludeWords) {
+                if (containsWords(tagWords, keywordWords)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Parser flag for keywords that name a pre-release or other dump flag, 0 for any other
+     */
+    private static int keywordFlag(String keyword) {
+        switch (keyword) {
+            case "beta":
+                return RomNameParser.FLAG_BETA;
+            case "proto":
+            case "prototype":
+                return RomNameParser.FLAG_PROTO;
+            case "demo":
+                return RomNameParser.FLAG_DEMO;
+            case "sample":
+                return RomNameParser.FLAG_SAMPLE;
+            case "pirate":
+                return RomNameParser.FLAG_PIRATE;
+            case "unl":
+            case "unlicensed":
+                return RomNameParser.FLAG_UNLICENSED;
+            default:
+                return 0;
+        }
+    }
+
+    private static String[] words(String text) {
+        return NON_WORD.splitAsStream(text).filter(word -> !word.isEmpty()).toArray(String[]::new);
+    }
+
+    /**
+     * Whether the words appear one after the other somewhere in the text's words
+     */
+    private static boolean containsWords(String[] text, String[] words) {
+        for (int start = 0; start + words.length <= text.length; start++) {
+            int matched = 0;
+            while (matched < words.length && text[start + matched].equals(words[matched])) {
+                matched++;
+            }
+            if (matched == words.length) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Preference score of a release from its parsed name fields, higher is better
+     */
+    public int score(int regionMask, int revision, int flags) {
+        int score = 0;
+        for (int i = 0; i < regionPriority.size(); i++) {
+            if ((regionMask & regionPriority.get(i).bit()) != 0) {
+                score += (regionPriority.size() - i) * REGION_STEP;
+                break;
+            }
+        }
+        if (preferLatestRevision) {
+            score += Math.min(revision, MAX_SCORED_REVISION) * REVISION_STEP;
+        }
+        if (preferVerified && (flags & RomNameParser.FLAG_VERIFIED) != 0) {
+            score += VERIFIED_BONUS;
+        }
+        if ((flags & PRERELEASE_FLAGS) != 0) {
+            score -= PRERELEASE_PENALTY;
+        }
+        return score;
+    }
+
+    /**
+     * Pick one of the matches of a search, or null when the policy can't decide: it is
+     * disabled, the matches are different games, nothing is left after the exclusions or
+     * the best two are closer than the minimum margin.
+     */
+    public RomFile choose(String searchTerm, List<RomFile> matches) {
+        if (!enabled || matches.isEmpty()) {
+            return null;
+        }
+
+        List<RomNameParser.ParsedName> parsed = new ArrayList<>(matches.size());
+        for (RomFile match : matches) {
+            parsed.add(RomNameParser.parse(match.getName()));
+        }
+
+        // Only releases of one game are compared, a title equal to the search term wins outright
+        String wanted = RomNameParser.normalizeTitle(searchTerm);
+        boolean exactTitle = parsed.stream().anyMatch(name -> name.getTitle().equals(wanted));
+        String title = exactTitle ? wanted : parsed.get(0).getTitle();
+
+        RomFile best = null;
+        int bestScore = Integer.MIN_VALUE;
+        int runnerUpScore = Integer.MIN_VALUE;
+        for (int i = 0; i < matches.size(); i++) {
+            RomNameParser.ParsedName name = parsed.get(i);
+            if (!name.getTitle().equals(title)) {
+                if (exactTitle) {
+                    continue;
+                }
+                // Several games match and none is the one searched for
+                return null;
+            }
+            if (isExcluded(matches.get(i).getName(), name.getFlags())) {
+                continue;
+            }
+
+            int score = score(name.getRegionMask(), name.getRevision(), name.getFlags())
+                    + matches.get(i).getMatchScore();
+            if (score > bestScore) {
+                runnerUpScore = bestScore;
+                bestScore = score;
+                best = matches.get(i);
+            } else if (score > runnerUpScore) {
+                runnerUpScore = score;
+            }
+        }
+
+        if (best == null) {
+            return null;
+        }
+        if (runnerUpScore != Integer.MIN_VALUE && bestScore - runnerUpScore < Math.max(1, minScoreMargin)) {
+            return null;
+        }
+        return best;
+    }
+}
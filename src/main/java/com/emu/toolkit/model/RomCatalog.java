@@ -0,0 +1,266 @@
+package com.emu.toolkit.model;
+
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Compact, immutable list of the ROMs found in one directory listing.
+ * Names and hrefs are stored back to back in UTF-8 byte arenas indexed by offsets,
+ * and hrefs are kept relative to a single base URL. {@link RomFile} instances are
+ * only created for the entries that are actually shown.
+ */
+public class RomCatalog {
+    // Longest suffix after the last dot that is still counted as a file extension
+    private static final int MAX_EXTENSION_LENGTH = 4;
+
+    @Getter private final String baseUrl;
+    /** Most frequent file extension in the listing (lowercase, with dot), empty if there is none */
+    @Getter private final String mostCommonExtension;
+    private final byte[] names;
+    private final int[] nameOffsets;
+    private final byte[] hrefs;
+    private final int[] hrefOffsets;
+
+    private RomCatalog(String baseUrl, String mostCommonExtension, byte[] names, int[] nameOffsets,
+                       byte[] hrefs, int[] hrefOffsets) {
+        this.baseUrl = baseUrl;
+        this.mostCommonExtension = mostCommonExtension;
+        this.names = names;
+        this.nameOffsets = nameOffsets;
+        this.hrefs = hrefs;
+        this.hrefOffsets = hrefOffsets;
+    }
+
+    public static Builder builder(String baseUrl) {
+        return new Builder(baseUrl);
+    }
+
+    public int size() {
+        return nameOffsets.length - 1;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public String getName(int id) {
+        return new String(names, nameOffsets[id], nameOffsets[id + 1] - nameOffsets[id], StandardCharsets.UTF_8);
+    }
+
+    public String getHref(int id) {
+        return new String(hrefs, hrefOffsets[id], hrefOffsets[id + 1] - hrefOffsets[id], StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Resolve the absolute download URL of an entry
+     */
+    public String getUrl(int id) {
+        String href = getHref(id);
+        return href.startsWith("http") ? href : baseUrl + href;
+    }
+
+    /**
+     * Materialize a view of a single entry for the UI
+     */
+    public RomFile getRomFile(int id) {
+        return new RomFile(getName(id), getUrl(id));
+    }
+
+    /**
+     * Materialize a search hit, tagged with the platform it belongs to
+     */
+    public RomFile getRomFile(int id, String platformId, int matchScore) {
+        return new RomFile(getName(id), getUrl(id), platformId, matchScore);
+    }
+
+    /**
+     * The shared name arena. Entry bytes live between {@link #nameStart} and {@link #nameEnd}
+     * and must not be modified.
+     */
+    public byte[] getNameBytes() {
+        return names;
+    }
+
+    public int nameStart(int id) {
+        return nameOffsets[id];
+    }
+
+    public int nameEnd(int id) {
+        return nameOffsets[id + 1];
+    }
+
+    /**
+     * Check whether an entry's name ends with the given suffix (case sensitive)
+     */
+    public boolean nameEndsWith(int id, byte[] suffix) {
+        int start = nameEnd(id) - suffix.length;
+        if (start < nameStart(id)) {
+            return false;
+        }
+        for (int i = 0; i < suffix.length; i++) {
+            if (names[start + i] != suffix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Create a catalog holding only the entries whose name ends with the extension.
+     * An empty extension keeps every entry.
+     */
+    public RomCatalog filterByExtension(String extension) {
+        if (extension == null || extension.isEmpty()) {
+            return this;
+        }
+
+        byte[] suffix = extension.getBytes(StandardCharsets.UTF_8);
+        Builder builder = new Builder(baseUrl);
+        for (int id = 0; id < size(); id++) {
+            if (nameEndsWith(id, suffix)) {
+                builder.copy(this, id);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Approximate heap footprint of the catalog in bytes
+     */
+    public long estimatedBytes() {
+        return names.length + hrefs.length + 4L * (nameOffsets.length + hrefOffsets.length) + 64;
+    }
+
+    /**
+     * Extract the lowercased extension (with dot) at the end of a name, or null when the
+     * name doesn't end in a short alphanumeric extension
+     */
+    private static String extensionOf(byte[] name, int from, int length) {
+        int end = from + length;
+        for (int i = end - 1; i >= from && i >= end - MAX_EXTENSION_LENGTH - 1; i--) {
+            byte b = name[i];
+            if (b == '.') {
+                if (i == end - 1) {
+                    return null;
+                }
+                return new String(name, i, end - i, StandardCharsets.US_ASCII).toLowerCase();
+            }
+            boolean alphanumeric = (b >= '0' && b <= '9') || (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z');
+            if (!alphanumeric) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Accumulates entries into growable arenas and freezes them into a catalog.
+     * A histogram of file extensions is kept along the way, so the dominant extension
+     * of a listing is known without a second pass or a second download.
+     */
+    public static class Builder {
+        private final String baseUrl;
+        private byte[] names = new byte[4096];
+        private int[] nameOffsets = new int[256];
+        private byte[] hrefs = new byte[4096];
+        private int[] hrefOffsets = new int[256];
+        private int nameLength;
+        private int hrefLength;
+        private int count;
+        private final Map<String, Integer> extensionCounts = new HashMap<>();
+
+        private Builder(String baseUrl) {
+            this.baseUrl = baseUrl.endsWith("/") ? baseUrl : baseUrl + "/";
+        }
+
+        /**
+         * Add an entry. Relative hrefs are stored without a leading slash and
+         * resolved against the base URL on demand.
+         */
+        public Builder add(String name, String href) {
+            if (!href.startsWith("http") && href.startsWith("/")) {
+                href = href.substring(1);
+            }
+            byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+            byte[] hrefBytes = href.getBytes(StandardCharsets.UTF_8);
+            append(nameBytes, 0, nameBytes.length, hrefBytes, 0, hrefBytes.length);
+            return this;
+        }
+
+        /**
+         * Copy an entry from another catalog without decoding it
+         */
+        public Builder copy(RomCatalog source, int id) {
+            append(source.names, source.nameOffsets[id], source.nameOffsets[id + 1] - source.nameOffsets[id],
+                    source.hrefs, source.hrefOffsets[id], source.hrefOffsets[id + 1] - source.hrefOffsets[id]);
+            return this;
+        }
+
+        public int size() {
+            return count;
+        }
+
+        /**
+         * The most frequent extension of the entries added so far, empty if there is none
+         */
+        public String getMostCommonExtension() {
+            String mostCommon = "";
+            int maxCount = 0;
+            for (Map.Entry<String, Integer> entry : extensionCounts.entrySet()) {
+                if (entry.getValue() > maxCount) {
+                    maxCount = entry.getValue();
+                    mostCommon = entry.getKey();
+                }
+            }
+            return mostCommon;
+        }
+
+        public RomCatalog build() {
+            int[] finalNameOffsets = new int[count + 1];
+            int[] finalHrefOffsets = new int[count + 1];
+            System.arraycopy(nameOffsets, 0, finalNameOffsets, 1, count);
+            System.arraycopy(hrefOffsets, 0, finalHrefOffsets, 1, count);
+
+            return new RomCatalog(
+                    baseUrl,
+                    getMostCommonExtension(),
+                    Arrays.copyOf(names, nameLength),
+                    finalNameOffsets,
+                    Arrays.copyOf(hrefs, hrefLength),
+                    finalHrefOffsets
+            );
+        }
+
+        private void append(byte[] name, int nameFrom, int nameLen, byte[] href, int hrefFrom, int hrefLen) {
+            if (nameLength + nameLen > names.length) {
+                names = Arrays.copyOf(names, Math.max(names.length * 2, nameLength + nameLen));
+            }
+            if (hrefLength + hrefLen > hrefs.length) {
+                hrefs = Arrays.copyOf(hrefs, Math.max(hrefs.length * 2, hrefLength + hrefLen));
+            }
+            if (count == nameOffsets.length) {
+                nameOffsets = Arrays.copyOf(nameOffsets, count * 2);
+                hrefOffsets = Arrays.copyOf(hrefOffsets, count * 2);
+            }
+
+            String extension = extensionOf(name, nameFrom, nameLen);
+            if (extension != null) {
+                extensionCounts.merge(extension, 1, Integer::sum);
+            }
+
+            System.arraycopy(name, nameFrom, names, nameLength, nameLen);
+            System.arraycopy(href, hrefFrom, hrefs, hrefLength, hrefLen);
+            nameLength += nameLen;
+            hrefLength += hrefLen;
+
+            // Offsets hold the end of each entry, the start is the previous entry's end
+            nameOffsets[count] = nameLength;
+            hrefOffsets[count] = hrefLength;
+            count++;
+        }
+    }
+}
@@ -1,29 +1,42 @@
 package com.emu.toolkit.model;
 
-import javafx.beans.property.SimpleStringProperty;
+import javafx.beans.property.ReadOnlyStringWrapper;
 import javafx.beans.property.StringProperty;
 import lombok.Getter;
 import lombok.ToString;
 
 /**
  * Represents a ROM file with name and URL.
+ * Search results also carry the platform they were found in and how well they matched.
+ * Instances are lightweight views over a {@link RomCatalog} entry, the name
+ * property is only created once a UI control binds to it.
  */
 @ToString(onlyExplicitlyIncluded = true)
 public class RomFile {
-    private final StringProperty name;
+    public static final int EXACT_MATCH_SCORE = 100;
+
+    @ToString.Include
+    @Getter private final String name;
     @Getter private final String url;
+    @Getter private final String platformId;
+    @Getter private final int matchScore;
+    private StringProperty nameProperty;
 
     public RomFile(String name, String url) {
-        this.name = new SimpleStringProperty(name);
-        this.url = url;
+        this(name, url, null, EXACT_MATCH_SCORE);
     }
 
-    @ToString.Include
-    public String getName() {
-        return name.get();
+    public RomFile(String name, String url, String platformId, int matchScore) {
+        this.name = name;
+        this.url = url;
+        this.platformId = platformId;
+        this.matchScore = matchScore;
     }
 
     public StringProperty nameProperty() {
-        return name;
+        if (nameProperty == null) {
+            nameProperty = new ReadOnlyStringWrapper(this, "name", name);
+        }
+        return nameProperty;
     }
-}
\ No newline at end of file
+}
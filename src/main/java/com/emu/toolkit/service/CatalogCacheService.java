@@ -0,0 +1,183 @@
+package com.emu.toolkit.service;
+
+import com.emu.toolkit.model.RomCatalog;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import lombok.Getter;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.UUID;
+
+/**
+ * Service responsible for persisting parsed directory listings between launches.
+ * Each listing is stored together with the validators (ETag / Last-Modified) the
+ * server sent, so a reconnect can be answered with a conditional GET.
+ * Catalogs are streamed to and from disk entry by entry to avoid building an
+ * intermediate object tree for very large listings.
+ */
+public class CatalogCacheService {
+    private static final String CACHE_DIR = ConfigPersistenceService.CONFIG_DIR + File.separator + "catalogs";
+    private final JsonFactory jsonFactory;
+
+    public CatalogCacheService() {
+        this.jsonFactory = new JsonFactory();
+        ensureCacheDirectory();
+    }
+
+    /**
+     * A cached listing along with the validators it was fetched with
+     */
+    @Getter
+    public static class CachedCatalog {
+        private final String url;
+        private final String etag;
+        private final String lastModified;
+        private final RomCatalog catalog;
+
+        public CachedCatalog(String url, String etag, String lastModified, RomCatalog catalog) {
+            this.url = url;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.catalog = catalog;
+        }
+    }
+
+    /**
+     * Ensure the cache directory exists
+     */
+    private void ensureCacheDirectory() {
+        File cacheDir = new File(CACHE_DIR);
+        if (!cacheDir.exists()) {
+            cacheDir.mkdirs();
+        }
+    }
+
+    /**
+     * Load the cached listing for a URL, or null if none is stored
+     */
+    public CachedCatalog load(String url) {
+        File cacheFile = getCacheFile(url);
+        if (!cacheFile.exists()) {
+            return null;
+        }
+
+        try (JsonParser parser = jsonFactory.createParser(cacheFile)) {
+            String cachedUrl = null;
+            String etag = null;
+            String lastModified = null;
+            String baseUrl = null;
+            RomCatalog catalog = null;
+
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+
+                switch (field) {
+                    case "url":
+                        cachedUrl = parser.getValueAsString();
+                        break;
+                    case "etag":
+                        etag = parser.getValueAsString();
+                        break;
+                    case "lastModified":
+                        lastModified = parser.getValueAsString();
+                        break;
+                    case "baseUrl":
+                        baseUrl = parser.getValueAsString();
+                        break;
+                    case "entries":
+                        // Entries are written after the base URL, so the builder can be created here
+                        catalog = readEntries(parser, baseUrl != null ? baseUrl : url);
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+
+            // Guard against the (unlikely) case of two URLs sharing a file name
+            if (!url.equals(cachedUrl) || catalog == null) {
+                return null;
+            }
+
+            return new CachedCatalog(url, etag, lastModified, catalog);
+        } catch (IOException | RuntimeException e) {
+            // A corrupt cache is not fatal, the listing will simply be fetched again
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    private RomCatalog readEntries(JsonParser parser, String baseUrl) throws IOException {
+        RomCatalog.Builder builder = RomCatalog.builder(baseUrl);
+
+        // Each entry is a two element array of [name, href]
+        while (parser.nextToken() == JsonToken.START_ARRAY) {
+            String name = parser.nextTextValue();
+            String href = parser.nextTextValue();
+            parser.nextToken();
+            builder.add(name, href);
+        }
+
+        // Anything else means the file was written in an older format
+        if (parser.currentToken() != JsonToken.END_ARRAY) {
+            throw new IOException("Unsupported catalog cache format");
+        }
+
+        return builder.build();
+    }
+
+    /**
+     * Store a parsed listing and its validators for a URL
+     */
+    public void save(String url, String etag, String lastModified, RomCatalog catalog) {
+        // Write to a temporary file first so a crash never leaves a truncated cache behind,
+        // each save gets its own so concurrent loads of the same URL can't interleave
+        File cacheFile = getCacheFile(url);
+        File tempFile = null;
+
+        try {
+            tempFile = Files.createTempFile(cacheFile.getParentFile().toPath(), cacheFile.getName(), ".tmp").toFile();
+            try (JsonGenerator generator = jsonFactory.createGenerator(tempFile, JsonEncoding.UTF8)) {
+                generator.writeStartObject();
+                generator.writeStringField("url", url);
+                generator.writeStringField("etag", etag);
+                generator.writeStringField("lastModified", lastModified);
+                generator.writeStringField("baseUrl", catalog.getBaseUrl());
+
+                generator.writeArrayFieldStart("entries");
+                for (int id = 0; id < catalog.size(); id++) {
+                    generator.writeStartArray();
+                    generator.writeString(catalog.getName(id));
+                    generator.writeString(catalog.getHref(id));
+                    generator.writeEndArray();
+                }
+                generator.writeEndArray();
+
+                generator.writeEndObject();
+            }
+            Files.move(tempFile.toPath(), cacheFile.toPath(),
+                    StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            e.printStackTrace();
+            if (tempFile != null) {
+                tempFile.delete();
+            }
+        }
+    }
+
+    private File getCacheFile(String url) {
+        String key = UUID.nameUUIDFromBytes(url.getBytes(StandardCharsets.UTF_8)).toString();
+        return new File(CACHE_DIR, key + ".json");
+    }
+}
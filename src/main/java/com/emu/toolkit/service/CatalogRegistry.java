@@ -0,0 +1,140 @@
+package com.emu.toolkit.service;
+
+import com.emu.toolkit.model.CatalogMetadata;
+import com.emu.toolkit.model.RomCatalog;
+import com.emu.toolkit.util.TrigramIndex;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the indexed catalogs of every platform resident, keyed by platform id.
+ * Entries are kept in access order so that, when a memory budget is set, the
+ * least recently used platform catalog is evicted first.
+ */
+public class CatalogRegistry {
+    // Access ordered, the eldest entry is the least recently used one
+    private final Map<String, LoadedCatalog> catalogs = new LinkedHashMap<>(16, 0.75f, true);
+    private long memoryBudgetBytes = 0;
+    private String activePlatformId;
+
+    /**
+     * A resident catalog together with the source it was loaded from
+     */
+    @Getter
+    public static class LoadedCatalog {
+        private final String platformId;
+        private final String url;
+        private final String extension;
+        // Extension filter the catalog was requested with, empty when it was auto detected
+        private final String filter;
+        private final TrigramIndex index;
+        private final CatalogMetadata metadata;
+
+        public LoadedCatalog(String platformId, String url, String extension, String filter, TrigramIndex index,
+                             CatalogMetadata metadata) {
+            this.platformId = platformId;
+            this.url = url;
+            this.extension = extension;
+            this.filter = filter;
+            this.index = index;
+            this.metadata = metadata;
+        }
+
+        public RomCatalog getCatalog() {
+            return index.getCatalog();
+        }
+
+        public int size() {
+            return index.size();
+        }
+
+        public long estimatedBytes() {
+            return index.getCatalog().estimatedBytes() + index.estimatedBytes() + metadata.estimatedBytes();
+        }
+    }
+
+    /**
+     * Find a resident catalog for a platform, loaded from the URL with the same extension
+     * filter. Callers pass the platform's configured extension, so a catalog warmed up in
+     * the background is found again when the platform is selected.
+     */
+    public synchronized LoadedCatalog find(String platformId, String url, String filter) {
+        LoadedCatalog loaded = catalogs.get(platformId);
+        if (loaded == null || !loaded.getUrl().equals(url) || !loaded.getFilter().equals(filter)) {
+            return null;
+        }
+        return loaded;
+    }
+
+    /**
+     * Register a freshly loaded catalog, replacing any previous one for the platform
+     */
+    public synchronized void put(LoadedCatalog loaded) {
+        catalogs.put(loaded.getPlatformId(), loaded);
+        evictOverBudget(loaded.getPlatformId());
+    }
+
+    /**
+     * Mark the catalog the user is currently working with, it is never evicted
+     */
+    public synchronized void setActive(String platformId) {
+        this.activePlatformId = platformId;
+        if (platformId != null) {
+            // Touch the entry so it counts as most recently used
+            catalogs.get(platformId);
+        }
+    }
+
+    public synchronized void remove(String platformId) {
+        catalogs.remove(platformId);
+    }
+
+    /**
+     * Snapshot of all resident catalogs, least recently used first
+     */
+    public synchronized List<LoadedCatalog> getLoadedCatalogs() {
+        return new ArrayList<>(catalogs.values());
+    }
+
+    public synchronized long getResidentBytes() {
+        long total = 0;
+        for (LoadedCatalog loaded : catalogs.values()) {
+            total += loaded.estimatedBytes();
+        }
+        return total;
+    }
+
+    /**
+     * Set the memory budget in bytes, 0 disables eviction
+     */
+    public synchronized void setMemoryBudget(long bytes) {
+        this.memoryBudgetBytes = Math.max(0, bytes);
+        evictOverBudget(null);
+    }
+
+    /**
+     * Evict least recently used catalogs until the budget is met, never touching
+     * the active catalog or the protected one
+     */
+    private void evictOverBudget(String protectedId) {
+        if (memoryBudgetBytes <= 0) {
+            return;
+        }
+
+        long total = getResidentBytes();
+        Iterator<LoadedCatalog> iterator = catalogs.values().iterator();
+        while (total > memoryBudgetBytes && iterator.hasNext()) {
+            LoadedCatalog eldest = iterator.next();
+            if (eldest.getPlatformId().equals(protectedId) || eldest.getPlatformId().equals(activePlatformId)) {
+                continue;
+            }
+            total -= eldest.estimatedBytes();
+            iterator.remove();
+        }
+    }
+}
@@ -8,12 +8,13 @@ import java.io.File;
 import java.io.IOException;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 /**
  * Service responsible for saving and loading application configuration.
  */
 public class ConfigPersistenceService {
-    private static final String CONFIG_DIR = System.getProperty("user.home") + File.separator + ".rom-scraper";
+    public static final String CONFIG_DIR = System.getProperty("user.home") + File.separator + ".rom-scraper";
     private static final String CONFIG_FILE = CONFIG_DIR + File.separator + "config.json";
     private final ObjectMapper objectMapper;
 
@@ -66,6 +67,92 @@ public class ConfigPersistenceService {
                 config.setLastDownloadFolder((String) configMap.get("lastDownloadFolder"));
             }
 
+            if (configMap.containsKey("fuzzyThreshold")) {
+                config.setFuzzyThreshold(((Number) configMap.get("fuzzyThreshold")).intValue());
+            }
+
+            if (configMap.containsKey("catalogMemoryBudgetMb")) {
+                config.setCatalogMemoryBudgetMb(((Number) configMap.get("catalogMemoryBudgetMb")).intValue());
+            }
+
+            if (configMap.containsKey("minParallelDownloads")) {
+                config.setMinParallelDownloads(((Number) configMap.get("minParallelDownloads")).intValue());
+            }
+
+            if (configMap.containsKey("maxParallelDownloads")) {
+                config.setMaxParallelDownloads(((Number) configMap.get("maxParallelDownloads")).intValue());
+            }
+
+            if (configMap.containsKey("maxConnectionsPerHost")) {
+                config.setMaxConnectionsPerHost(((Number) configMap.get("maxConnectionsPerHost")).intValue());
+            }
+
+            if (configMap.containsKey("globalBandwidthLimitKbps")) {
+                config.setGlobalBandwidthLimitKbps(((Number) configMap.get("globalBandwidthLimitKbps")).intValue());
+            }
+
+            if (configMap.containsKey("perDownloadBandwidthLimitKbps")) {
+                config.setPerDownloadBandwidthLimitKbps(((Number) configMap.get("perDownloadBandwidthLimitKbps")).intValue());
+            }
+
+            if (configMap.containsKey("bandwidthScheduleEnabled")) {
+                config.setBandwidthScheduleEnabled((Boolean) configMap.get("bandwidthScheduleEnabled"));
+            }
+
+            if (configMap.containsKey("bandwidthScheduleStart")) {
+                config.setBandwidthScheduleStart((String) configMap.get("bandwidthScheduleStart"));
+            }
+
+            if (configMap.containsKey("bandwidthScheduleEnd")) {
+                config.setBandwidthScheduleEnd((String) configMap.get("bandwidthScheduleEnd"));
+            }
+
+            if (configMap.containsKey("batchSearchConcurrency")) {
+                config.setBatchSearchConcurrency(((Number) configMap.get("batchSearchConcurrency")).intValue());
+            }
+
+            if (configMap.containsKey("autoResolveMatches")) {
+                config.setAutoResolveMatches((Boolean) configMap.get("autoResolveMatches"));
+            }
+
+            if (configMap.containsKey("resolveRegionPriority")) {
+                config.setResolveRegionPriority((String) configMap.get("resolveRegionPriority"));
+            }
+
+            if (configMap.containsKey("resolvePreferLatestRevision")) {
+                config.setResolvePreferLatestRevision((Boolean) configMap.get("resolvePreferLatestRevision"));
+            }
+
+            if (configMap.containsKey("resolvePreferVerified")) {
+                config.setResolvePreferVerified((Boolean) configMap.get("resolvePreferVerified"));
+            }
+
+            if (configMap.containsKey("resolveExcludeKeywords")) {
+                config.setResolveExcludeKeywords((String) configMap.get("resolveExcludeKeywords"));
+            }
+
+            if (configMap.containsKey("resolveMinScoreMargin")) {
+                config.setResolveMinScoreMargin(((Number) configMap.get("resolveMinScoreMargin")).intValue());
+            }
+
+            if (configMap.containsKey("extractArchives")) {
+                config.setExtractArchives((Boolean) configMap.get("extractArchives"));
+            }
+
+            if (configMap.containsKey("deleteArchivesAfterExtraction")) {
+                config.setDeleteArchivesAfterExtraction((Boolean) configMap.get("deleteArchivesAfterExtraction"));
+            }
+
+            if (configMap.containsKey("streamZipExtraction")) {
+                config.setStreamZipExtraction((Boolean) configMap.get("streamZipExtraction"));
+            }
+
+            if (configMap.containsKey("datFiles")) {
+                config.setDatFiles(((List<?>) configMap.get("datFiles")).stream()
+                        .map(String::valueOf)
+                        .collect(Collectors.toList()));
+            }
+
             // Load platform configurations
             if (configMap.containsKey("platforms")) {
                 List<Map<String, String>> platforms = (List<Map<String, String>>) configMap.get("platforms");
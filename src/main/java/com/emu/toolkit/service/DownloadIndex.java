@@ -0,0 +1,64 @@
+package com.emu.toolkit.service;
+
+import com.emu.toolkit.model.DownloadTask;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Lookup of the tasks in the download list by URL and by destination path, so duplicate
+ * checks take constant time and never read the task list, which only the FX thread may
+ * touch. Each task is registered under both keys together with the state of its transfer
+ * and stays registered until it is taken off the list.
+ */
+public class DownloadIndex {
+
+    public enum State {
+        QUEUED, ACTIVE, COMPLETE, FAILED, CANCELLED
+    }
+
+    private final Map<String, DownloadTask> byUrl = new ConcurrentHashMap<>();
+    private final Map<String, DownloadTask> byDestination = new ConcurrentHashMap<>();
+    private final Map<DownloadTask, State> states = new ConcurrentHashMap<>();
+
+    /**
+     * Register a task unless another one already has its URL or destination
+     *
+     * @return whether the task was registered
+     */
+    public boolean register(DownloadTask task, State state) {
+        if (byDestination.putIfAbsent(task.getDestination(), task) != null) {
+            return false;
+        }
+        if (byUrl.putIfAbsent(task.getUrl(), task) != null) {
+            byDestination.remove(task.getDestination(), task);
+            return false;
+        }
+        states.put(task, state);
+        return true;
+    }
+
+    public void setState(DownloadTask task, State state) {
+        states.replace(task, state);
+    }
+
+    /**
+     * State of a registered task, null if it isn't registered
+     */
+    public State getState(DownloadTask task) {
+        return states.get(task);
+    }
+
+    public DownloadTask findByUrl(String url) {
+        return byUrl.get(url);
+    }
+
+    /**
+     * Unregister a task, a newer task that took over its keys is left alone
+     */
+    public void remove(DownloadTask task) {
+        byUrl.remove(task.getUrl(), task);
+        byDestination.remove(task.getDestination(), task);
+        states.remove(task);
+    }
+}
@@ -0,0 +1,310 @@
+package com.emu.toolkit.service;
+
+import com.emu.toolkit.model.DownloadTask;
+import lombok.Getter;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Append-only journal of the download queue, so queued and interrupted downloads survive a
+ * restart or a crash. Each line is one event, tab separated and keyed by the destination path:
+ * <pre>
+ * ENQ    destination url filename
+ * START  destination
+ * PROG   destination bytes
+ * DONE   destination
+ * CANCEL destination
+ * </pre>
+ * Replaying the events yields the downloads that were neither completed nor cancelled, in
+ * the order they were queued. START lines only document the history, a restored download
+ * resumes from its last PROG either way. A torn last line from a crash is skipped. The journal is
+ * rewritten with only the live entries once superseded lines dominate it.
+ */
+public class DownloadJournal {
+    // Compact once the file holds this many more lines than live entries need
+    private static final int COMPACT_MIN_STALE_LINES = 1000;
+
+    private final File file;
+    // Live entries by destination, in queue order
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+    private Writer writer;
+    private int lineCount;
+
+    /**
+     * A download the journal still expects to finish
+     */
+    @Getter
+    public static class Entry {
+        private final String destination;
+        private final String url;
+        private final String filename;
+        private long bytesDone;
+
+        Entry(String destination, String url, String filename) {
+            this.destination = destination;
+            this.url = url;
+            this.filename = filename;
+        }
+    }
+
+    public DownloadJournal(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Read the journal and return the downloads that were still queued or running, then
+     * open it for appending
+     */
+    public synchronized List<Entry> replay() {
+        entries.clear();
+        lineCount = 0;
+        if (file.exists()) {
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    lineCount++;
+                    apply(line.split("\t", -1));
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+
+        // Start from a clean file, this also drops a torn last line
+        compact();
+        return new ArrayList<>(entries.values());
+    }
+
+    private void apply(String[] fields) {
+        if (fields.length < 2) {
+            return;
+        }
+        String destination = unescape(fields[1]);
+        switch (fields[0]) {
+            case "ENQ":
+                if (fields.length >= 4) {
+                    entries.put(destination, new Entry(destination, unescape(fields[2]), unescape(fields[3])));
+                }
+                break;
+            case "PROG": {
+                Entry entry = entries.get(destination);
+                if (entry != null && fields.length >= 3) {
+                    try {
+                        entry.bytesDone = Long.parseLong(fields[2]);
+                    } catch (NumberFormatException e) {
+                        // Torn line, keep the previous checkpoint
+                    }
+                }
+                break;
+            }
+            case "DONE":
+            case "CANCEL":
+                entries.remove(destination);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Record a batch of enqueued downloads with a single flush
+     */
+    public synchronized void recordEnqueued(Collection<DownloadTask> tasks) {
+        for (DownloadTask task : tasks) {
+            append(false, "ENQ", task.getDestination(), task.getUrl(), task.getFilename());
+        }
+        flush();
+    }
+
+    public void recordStarted(DownloadTask task) {
+        append("START", task.getDestination());
+    }
+
+    public void recordProgress(DownloadTask task, long bytesDone) {
+        append("PROG", task.getDestination(), Long.toString(bytesDone));
+    }
+
+    public void recordCompleted(DownloadTask task) {
+        append("DONE", task.getDestination());
+    }
+
+    public void recordCancelled(DownloadTask task) {
+        append("CANCEL", task.getDestination());
+    }
+
+    private synchronized void append(String... fields) {
+        append(true, fields);
+    }
+
+    private synchronized void append(boolean flush, String... fields) {
+        StringBuilder line = new StringBuilder(fields[0]);
+        for (int i = 1; i < fields.length; i++) {
+            line.append('\t').append(i == 1 || fields[0].equals("ENQ") ? escape(fields[i]) : fields[i]);
+        }
+        apply(line.toString().split("\t", -1));
+
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.write(line.append('\n').toString());
+            lineCount++;
+            // Flushed per event or batch, a crash loses at most the line being written
+            if (flush) {
+                writer.flush();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void flush() {
+        if (writer != null) {
+            try {
+                writer.flush();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Rewrite the journal if most of its lines are superseded
+     */
+    public synchronized void compactIfNeeded() {
+        if (lineCount - 2 * entries.size() > COMPACT_MIN_STALE_LINES) {
+            compact();
+        }
+    }
+
+    /**
+     * Rewrite the journal with one ENQ and PROG line per live entry, via a temporary file
+     * so a crash leaves either the old or the new journal. A rewrite that fails keeps the
+     * old journal and appending continues on it.
+     */
+    private void compact() {
+        close();
+        File parent = file.getParentFile();
+        if (parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+
+        File tempFile = new File(file.getPath() + ".tmp");
+        int lines = 0;
+        try (Writer out = new BufferedWriter(
+                new OutputStreamWriter(new FileOutputStream(tempFile), StandardCharsets.UTF_8))) {
+            for (Entry entry : entries.values()) {
+                out.write("ENQ\t" + escape(entry.destination) + "\t" + escape(entry.url) + "\t"
+                        + escape(entry.filename) + "\n");
+                lines++;
+                if (entry.bytesDone > 0) {
+                    out.write("PROG\t" + escape(entry.destination) + "\t" + entry.bytesDone + "\n");
+                    lines++;
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            tempFile.delete();
+            endLastLine();
+            openWriter();
+            return;
+        }
+
+        try {
+            try {
+                Files.move(tempFile.toPath(), file.toPath(),
+                        StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            lineCount = lines;
+        } catch (IOException e) {
+            e.printStackTrace();
+            tempFile.delete();
+            endLastLine();
+        }
+
+        openWriter();
+    }
+
+    /**
+     * Terminate a torn last line of the old journal, so the next event starts a line of its own
+     */
+    private void endLastLine() {
+        if (file.length() == 0) {
+            return;
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(raf.length() - 1);
+            if (raf.read() != '\n') {
+                raf.write('\n');
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void openWriter() {
+        try {
+            writer = new BufferedWriter(
+                    new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    public synchronized void close() {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            writer = null;
+        }
+    }
+
+    // Tabs, newlines and backslashes are escaped so every event stays on one line
+    private static String escape(String value) {
+        if (value == null) {
+            return "";
+        }
+        return value.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n").replace("\r", "\\r");
+    }
+
+    private static String unescape(String value) {
+        if (value.indexOf('\\') < 0) {
+            return value;
+        }
+        StringBuilder result = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                char next = value.charAt(++i);
+                result.append(next == 't' ? '\t' : next == 'n' ? '\n' : next == 'r' ? '\r' : next);
+            } else {
+                result.append(c);
+            }
+        }
+        return result.toString();
+    }
+}
@@ -1,17 +1,31 @@
 package com.emu.toolkit.service;
 
+import com.emu.toolkit.model.AppConfig;
+import com.emu.toolkit.model.DatIndex;
 import com.emu.toolkit.model.DownloadTask;
 import com.emu.toolkit.model.RomFile;
+import com.emu.toolkit.util.AimdController;
+import com.emu.toolkit.util.Checksums;
+import com.emu.toolkit.util.HostLimiter;
+import com.emu.toolkit.util.PartFile;
+import com.emu.toolkit.util.RoundRobinQueue;
+import com.emu.toolkit.util.TokenBucket;
 import javafx.application.Platform;
+import javafx.beans.property.IntegerProperty;
+import javafx.beans.property.SimpleIntegerProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.FilterInputStream;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.time.LocalTime;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.locks.ReentrantLock;
@@ -26,20 +40,90 @@ public class DownloadService {
     private final Map<DownloadTask, Future<?>> taskFutures;
     private final int PROGRESS_UPDATE_INTERVAL_MS = 100;
 
-    // Fixed to 5 parallel downloads
-    private final int maxParallelDownloads = 5;
+    // Pushes the counters of running downloads to the UI once per frame
+    private final ProgressPublisher progressPublisher = new ProgressPublisher();
+
+    // Records the queue so it can be restored after a restart or crash
+    private final DownloadJournal journal = new DownloadJournal(
+            new File(ConfigPersistenceService.CONFIG_DIR, "download-queue.journal"));
+    private static final long JOURNAL_COMPACT_INTERVAL_MS = 5 * 60 * 1000;
+    private static final long SHUTDOWN_CHECKPOINT_TIMEOUT_MS = 2000;
+
+    // Known-good checksums finished downloads are verified against
+    private volatile DatIndex datIndex = DatIndex.EMPTY;
+    private List<String> loadedDatFiles = Collections.emptyList();
+    private final ExecutorService datLoaderExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "dat-loader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Unpacks finished archives on its own pool, off the download threads
+    private final ExtractionService extractionService = new ExtractionService(() -> datIndex);
+    private volatile boolean extractArchives;
+    private volatile boolean deleteArchivesAfterExtraction;
+    private volatile boolean streamZipExtraction;
+
+    // Set while the application closes, interrupted downloads are then kept for resuming
+    private volatile boolean shuttingDown;
+
+    // Parallel downloads start here and adapt to measured throughput within the user's bounds
+    private static final int INITIAL_PARALLEL_DOWNLOADS = 5;
+    public static final int DEFAULT_MIN_PARALLEL_DOWNLOADS = 2;
+    public static final int DEFAULT_MAX_PARALLEL_DOWNLOADS = 16;
+    private static final long CONCURRENCY_ADJUST_INTERVAL_MS = 2000;
+
+    private final AimdController concurrencyController = new AimdController(
+            INITIAL_PARALLEL_DOWNLOADS, DEFAULT_MIN_PARALLEL_DOWNLOADS, DEFAULT_MAX_PARALLEL_DOWNLOADS);
+    private final IntegerProperty concurrencyLimit = new SimpleIntegerProperty(INITIAL_PARALLEL_DOWNLOADS);
+    // Throughput of the last interval downloads were running in, kept while idle for estimates
+    private volatile double measuredThroughput;
+
+    // Files at least this large are split over several connections when the server allows it
+    private static final long SEGMENTED_MIN_BYTES = 64L * 1024 * 1024;
+    private static final int MAX_SEGMENTS_PER_FILE = 4;
+    public static final int DEFAULT_MAX_CONNECTIONS_PER_HOST = 4;
+
+    // Caps the connections opened against each host, downloads and extra segments alike
+    private final HostLimiter hostLimiter = new HostLimiter(DEFAULT_MAX_CONNECTIONS_PER_HOST);
+
+    // Host whose connection slot each running download holds
+    private final Map<DownloadTask, String> heldHostSlots = new ConcurrentHashMap<>();
+
+    // Bandwidth shared by all downloads, each task additionally has its own bucket
+    private final TokenBucket globalBandwidth = new TokenBucket(0);
+    private static final long BANDWIDTH_SCHEDULE_CHECK_INTERVAL_MS = 30000;
+
+    // Configured limits in bytes per second, 0 means unlimited
+    private volatile long globalBandwidthLimit;
+    private volatile long perTaskBandwidthLimit;
+
+    // When enabled the limits only apply between these times of day, the window may wrap midnight
+    private volatile boolean bandwidthScheduleEnabled;
+    private volatile LocalTime bandwidthScheduleStart = LocalTime.of(9, 0);
+    private volatile LocalTime bandwidthScheduleEnd = LocalTime.of(17, 0);
+
+    // Runs the connections of segmented downloads
+    private final ExecutorService segmentExecutor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "download-segment");
+        thread.setDaemon(true); // Don't block application shutdown
+        return thread;
+    });
 
     // Use a single-threaded executor to handle download queue management
     private final ExecutorService queueManagerExecutor = Executors.newSingleThreadExecutor();
 
-    // Use a fixed executor for the actual downloads
+    // Threads for the actual downloads, how many run at once is decided by the queue manager
     private final ExecutorService downloadExecutor;
 
     // Use a scheduled executor for delayed removal of cancelled tasks
     private final ScheduledExecutorService scheduledExecutor = Executors.newSingleThreadScheduledExecutor();
 
-    // Queue for pending downloads
-    private final Queue<DownloadTask> pendingDownloads = new ConcurrentLinkedQueue<>();
+    // Pending downloads, one sub-queue per host served round-robin so mirrors interleave
+    private final RoundRobinQueue<String, DownloadTask> pendingDownloads = new RoundRobinQueue<>();
+
+    // Every task in the list by URL and destination, for duplicate checks off the FX thread
+    private final DownloadIndex downloadIndex = new DownloadIndex();
 
     // Set to track currently active downloads
     private final Set<DownloadTask> activeDownloads = Collections.synchronizedSet(new HashSet<>());
@@ -51,47 +135,281 @@ public class DownloadService {
         this.downloadTasks = FXCollections.observableArrayList();
         this.taskFutures = new ConcurrentHashMap<>();
 
-        // Initialize with a fixed thread pool of 5 parallel downloads
-        this.downloadExecutor = Executors.newFixedThreadPool(maxParallelDownloads);
+        // The number of running downloads changes at runtime, so threads are created on demand
+        this.downloadExecutor = Executors.newCachedThreadPool();
+
+        scheduledExecutor.scheduleAtFixedRate(this::adjustConcurrency,
+                CONCURRENCY_ADJUST_INTERVAL_MS, CONCURRENCY_ADJUST_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        scheduledExecutor.scheduleAtFixedRate(this::applyBandwidthLimits,
+                BANDWIDTH_SCHEDULE_CHECK_INTERVAL_MS, BANDWIDTH_SCHEDULE_CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        scheduledExecutor.scheduleAtFixedRate(journal::compactIfNeeded,
+                JOURNAL_COMPACT_INTERVAL_MS, JOURNAL_COMPACT_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Queue the downloads the journal recorded as unfinished, partially downloaded files
+     * resume where they stopped. Call once at startup, before anything new is queued.
+     */
+    public void restoreQueue() {
+        for (DownloadJournal.Entry entry : journal.replay()) {
+            DownloadTask task = new DownloadTask(entry.getFilename(), entry.getUrl(), entry.getDestination());
+
+            // Finished but the completion never made it into the journal
+            File destFile = new File(entry.getDestination());
+            if (destFile.exists() && destFile.length() > 0) {
+                journal.recordCompleted(task);
+                continue;
+            }
+
+            if (!downloadIndex.register(task, DownloadIndex.State.QUEUED)) {
+                continue;
+            }
+            task.setBytesDone(entry.getBytesDone());
+            Platform.runLater(() -> downloadTasks.add(task));
+            pendingDownloads.add(HostLimiter.hostOf(task.getUrl()), task);
+        }
+        processDownloadQueue();
     }
 
     public ObservableList<DownloadTask> getDownloadTasks() {
         return downloadTasks;
     }
 
-    public void addToQueue(RomFile romFile, String destinationFolder) {
-        // Check if file already exists
-        File destFile = new File(destinationFolder, romFile.getName());
-        if (destFile.exists() && destFile.length() > 0) {
-            // Create a task that's already complete
-            DownloadTask task = new DownloadTask(romFile.getName(), romFile.getUrl(), destFile.getPath());
-            task.setProgress(1.0);
-            task.setStatus("Complete");
+    /**
+     * The number of downloads currently allowed to run at once
+     */
+    public IntegerProperty concurrencyLimitProperty() {
+        return concurrencyLimit;
+    }
 
-            Platform.runLater(() -> {
-                downloadTasks.add(task);
-            });
+    /**
+     * Set the range the adaptive download concurrency may move in
+     */
+    public void setConcurrencyBounds(int min, int max) {
+        concurrencyController.setBounds(min, max);
+        publishConcurrencyLimit();
+        processDownloadQueue();
+    }
+
+    /**
+     * Let the controller re-evaluate the limit from the last interval's throughput and errors
+     */
+    private void adjustConcurrency() {
+        int previousLimit = concurrencyController.getLimit();
+        // Downloads held back only by their host's cap don't count, more slots wouldn't help them
+        boolean saturated = activeDownloads.size() >= previousLimit && pendingDownloads.hasAny(this::hostHasCapacity);
+        int limit = concurrencyController.adjust(CONCURRENCY_ADJUST_INTERVAL_MS, saturated);
+        if (!activeDownloads.isEmpty()) {
+            measuredThroughput = concurrencyController.getThroughput();
+        }
+
+        if (limit != previousLimit) {
+            publishConcurrencyLimit();
+            if (limit > previousLimit) {
+                processDownloadQueue();
+            }
+        }
+    }
+
+    /**
+     * Load the DAT files downloads are verified against in the background, nothing happens
+     * if the same files are already loaded
+     */
+    public synchronized void setDatFiles(List<String> datFiles) {
+        if (datFiles.equals(loadedDatFiles)) {
             return;
         }
+        loadedDatFiles = new ArrayList<>(datFiles);
+
+        List<File> files = new ArrayList<>();
+        for (String path : datFiles) {
+            files.add(new File(path));
+        }
+        datLoaderExecutor.submit(() -> datIndex = DatIndex.load(files));
+    }
 
-        // Check if already in queue
-        for (DownloadTask existingTask : downloadTasks) {
-            if (existingTask.getFilename().equals(romFile.getName())) {
-                return; // Already in queue
+    /**
+     * Apply the archive extraction settings, they take effect for downloads finishing from now on
+     */
+    public void setExtractionOptions(AppConfig appConfig) {
+        this.extractArchives = appConfig.isExtractArchives();
+        this.deleteArchivesAfterExtraction = appConfig.isDeleteArchivesAfterExtraction();
+        this.streamZipExtraction = appConfig.isStreamZipExtraction();
+    }
+
+    private void publishConcurrencyLimit() {
+        int limit = concurrencyController.getLimit();
+        Platform.runLater(() -> concurrencyLimit.set(limit));
+    }
+
+    /**
+     * Set the global and per-download bandwidth limits in bytes per second, 0 for unlimited.
+     * Running downloads pick up the new limits immediately.
+     */
+    public void setBandwidthLimits(long globalBytesPerSecond, long perTaskBytesPerSecond) {
+        this.globalBandwidthLimit = Math.max(0, globalBytesPerSecond);
+        this.perTaskBandwidthLimit = Math.max(0, perTaskBytesPerSecond);
+        applyBandwidthLimits();
+    }
+
+    /**
+     * Only enforce the bandwidth limits between start and end, an end before the start
+     * means the window runs over midnight
+     */
+    public void setBandwidthSchedule(boolean enabled, LocalTime start, LocalTime end) {
+        this.bandwidthScheduleEnabled = enabled && start != null && end != null;
+        if (start != null && end != null) {
+            this.bandwidthScheduleStart = start;
+            this.bandwidthScheduleEnd = end;
+        }
+        applyBandwidthLimits();
+    }
+
+    /**
+     * Apply the bandwidth limits and schedule of the application settings
+     */
+    public void setBandwidthLimits(AppConfig appConfig) {
+        setBandwidthSchedule(appConfig.isBandwidthScheduleEnabled(),
+                AppConfig.parseTimeOfDay(appConfig.getBandwidthScheduleStart()),
+                AppConfig.parseTimeOfDay(appConfig.getBandwidthScheduleEnd()));
+        setBandwidthLimits(appConfig.getGlobalBandwidthLimitKbps() * 1024L,
+                appConfig.getPerDownloadBandwidthLimitKbps() * 1024L);
+    }
+
+    private boolean bandwidthLimited() {
+        if (!bandwidthScheduleEnabled) {
+            return true;
+        }
+        LocalTime now = LocalTime.now();
+        LocalTime start = bandwidthScheduleStart;
+        LocalTime end = bandwidthScheduleEnd;
+        if (start.isBefore(end)) {
+            return !now.isBefore(start) && now.isBefore(end);
+        }
+        return !now.isBefore(start) || now.isBefore(end);
+    }
+
+    /**
+     * Push the limits in effect right now into the global bucket and those of running downloads
+     */
+    private void applyBandwidthLimits() {
+        boolean limited = bandwidthLimited();
+        globalBandwidth.setRate(limited ? globalBandwidthLimit : 0);
+
+        long perTask = limited ? perTaskBandwidthLimit : 0;
+        synchronized (activeDownloads) {
+            for (DownloadTask task : activeDownloads) {
+                task.getBandwidthLimit().setRate(perTask);
             }
         }
+    }
 
-        // Create new download task
-        final DownloadTask task = new DownloadTask(romFile.getName(), romFile.getUrl(), destFile.getPath());
+    /**
+     * Expected aggregate download speed in bytes per second: the recently measured
+     * throughput, capped by the global bandwidth limit while it applies. 0 when nothing
+     * has been measured yet and no limit applies.
+     */
+    public double getEstimatedThroughput() {
+        double throughput = measuredThroughput;
+        long limit = bandwidthLimited() ? globalBandwidthLimit : 0;
+        if (limit > 0) {
+            return throughput > 0 ? Math.min(throughput, limit) : limit;
+        }
+        return throughput;
+    }
 
-        Platform.runLater(() -> {
-            downloadTasks.add(task);
-            task.setStatus("Queued");
-        });
+    /**
+     * Whether a download of the URL is already in the list, finished or not
+     */
+    public boolean isInList(String url) {
+        return downloadIndex.findByUrl(url) != null;
+    }
 
-        // Add task to pending queue and process queue
-        pendingDownloads.add(task);
-        processDownloadQueue();
+    private long currentPerTaskBandwidthLimit() {
+        return bandwidthLimited() ? perTaskBandwidthLimit : 0;
+    }
+
+    /**
+     * Queue a ROM for download, safe to call from any thread
+     *
+     * @return false if the ROM was already in the list
+     */
+    public boolean addToQueue(RomFile romFile, String destinationFolder) {
+        File destFile = new File(destinationFolder, romFile.getName());
+        List<DownloadTask> queued = new ArrayList<>(1);
+        DownloadTask task = enqueue(romFile, destFile, destFile.exists() && destFile.length() > 0, queued);
+        if (task == null) {
+            return false; // Already in the list
+        }
+
+        Platform.runLater(() -> downloadTasks.add(task));
+        if (!queued.isEmpty()) {
+            journal.recordEnqueued(queued);
+            processDownloadQueue();
+        }
+        return true;
+    }
+
+    /**
+     * Queue many ROMs at once. The destination folder is listed once instead of checking
+     * each file, and the list and journal are updated in one go.
+     *
+     * @return the number of ROMs that were not already in the list
+     */
+    public int addAllToQueue(Collection<RomFile> romFiles, String destinationFolder) {
+        // Names of the non-empty files already in the folder
+        Set<String> existing = new HashSet<>();
+        File[] files = new File(destinationFolder).listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.length() > 0) {
+                    existing.add(file.getName());
+                }
+            }
+        }
+
+        List<DownloadTask> added = new ArrayList<>(romFiles.size());
+        List<DownloadTask> queued = new ArrayList<>(romFiles.size());
+        for (RomFile romFile : romFiles) {
+            File destFile = new File(destinationFolder, romFile.getName());
+            DownloadTask task = enqueue(romFile, destFile, existing.contains(romFile.getName()), queued);
+            if (task != null) {
+                added.add(task);
+            }
+        }
+
+        if (!added.isEmpty()) {
+            Platform.runLater(() -> downloadTasks.addAll(added));
+        }
+        if (!queued.isEmpty()) {
+            journal.recordEnqueued(queued);
+            processDownloadQueue();
+        }
+        return added.size();
+    }
+
+    /**
+     * Create and register the task for a ROM, queueing it unless the file is already there.
+     * Returns null if a task with the same URL or destination is already in the list.
+     */
+    private DownloadTask enqueue(RomFile romFile, File destFile, boolean alreadyDownloaded, List<DownloadTask> queued) {
+        DownloadTask task = new DownloadTask(romFile.getName(), romFile.getUrl(), destFile.getPath());
+        if (alreadyDownloaded) {
+            // A task that's already complete
+            if (!downloadIndex.register(task, DownloadIndex.State.COMPLETE)) {
+                return null;
+            }
+            task.setProgress(1.0);
+            task.setStatus("Complete");
+            return task;
+        }
+
+        if (!downloadIndex.register(task, DownloadIndex.State.QUEUED)) {
+            return null;
+        }
+        pendingDownloads.add(HostLimiter.hostOf(task.getUrl()), task);
+        queued.add(task);
+        return task;
     }
 
     /**
@@ -104,31 +422,38 @@ public class DownloadService {
                 queueLock.lock();
 
                 // While we have capacity and pending downloads
-                while (activeDownloads.size() < maxParallelDownloads && !pendingDownloads.isEmpty()) {
-                    // Get next task from queue
-                    DownloadTask nextTask = pendingDownloads.poll();
-                    if (nextTask != null) {
-                        // Mark as active before starting
-                        activeDownloads.add(nextTask);
-
-                        // Submit the download
-                        Future<?> future = downloadExecutor.submit(() -> {
-                            try {
-                                // Update task status
-                                Platform.runLater(() -> nextTask.setStatus("Downloading"));
-
-                                // Perform download
-                                downloadFile(nextTask);
-                            } finally {
-                                // Mark as inactive and process queue again
-                                activeDownloads.remove(nextTask);
-                                processDownloadQueue();
-                            }
-                        });
-
-                        // Store future for cancellation
-                        taskFutures.put(nextTask, future);
+                while (activeDownloads.size() < concurrencyController.getLimit() && !pendingDownloads.isEmpty()) {
+                    // Take the next task of the next host in rotation that is below its cap,
+                    // the host's connection slot is taken along with it
+                    DownloadTask nextTask = pendingDownloads.poll(hostLimiter::tryAcquire);
+                    if (nextTask == null) {
+                        // Every host with pending downloads is at its cap
+                        break;
                     }
+                    heldHostSlots.put(nextTask, HostLimiter.hostOf(nextTask.getUrl()));
+
+                    // Mark as active before starting
+                    activeDownloads.add(nextTask);
+                    downloadIndex.setState(nextTask, DownloadIndex.State.ACTIVE);
+
+                    // Submit the download
+                    Future<?> future = downloadExecutor.submit(() -> {
+                        try {
+                            // Update task status
+                            Platform.runLater(() -> nextTask.setStatus("Downloading"));
+
+                            // Perform download
+                            downloadFile(nextTask);
+                        } finally {
+                            // Mark as inactive and process queue again
+                            activeDownloads.remove(nextTask);
+                            releaseHostSlot(nextTask);
+                            processDownloadQueue();
+                        }
+                    });
+
+                    // Store future for cancellation
+                    taskFutures.put(nextTask, future);
                 }
             } finally {
                 queueLock.unlock();
@@ -136,6 +461,28 @@ public class DownloadService {
         });
     }
 
+    /**
+     * Give back the connection slot of a download, safe to call more than once
+     */
+    private void releaseHostSlot(DownloadTask task) {
+        String host = heldHostSlots.remove(task);
+        if (host != null) {
+            hostLimiter.release(host);
+        }
+    }
+
+    private boolean hostHasCapacity(String host) {
+        return hostLimiter.getActive(host) < hostLimiter.getMaxPerHost();
+    }
+
+    /**
+     * Set how many connections may be open against a single host at once
+     */
+    public void setMaxConnectionsPerHost(int maxConnections) {
+        hostLimiter.setMaxPerHost(maxConnections);
+        processDownloadQueue();
+    }
+
     private void downloadFile(DownloadTask task) {
         // Make sure the destination directory exists
         File destFile = new File(task.getDestination());
@@ -148,7 +495,23 @@ public class DownloadService {
             }
         }
 
+        // Data goes to a .part file that is only renamed once complete
+        PartFile partFile = new PartFile(destFile);
+        PartFile.State resumeState = partFile.load();
+        if (resumeState != null && !task.getUrl().equals(resumeState.getUrl())) {
+            partFile.delete();
+            resumeState = null;
+        }
+
+        task.getBandwidthLimit().setRate(currentPerTaskBandwidthLimit());
+        journal.recordStarted(task);
+
         HttpURLConnection connection = null;
+        SegmentedDownload segmented = null;
+        Checksums checksums = null;
+        long totalBytesRead = 0;
+        String etag = null;
+        String lastModified = null;
         try {
             // Set up connection
             URL url = new URL(task.getUrl());
@@ -156,10 +519,44 @@ public class DownloadService {
             connection.setRequestMethod("GET");
             connection.setConnectTimeout(15000); // 15 seconds connect timeout
             connection.setReadTimeout(30000);    // 30 seconds read timeout
+
+            // Ask for the rest of the file only, If-Range makes the server send the
+            // whole file instead if it changed since the partial download started
+            long resumeFrom = resumeState != null ? resumeState.getBytesWritten() : 0;
+            if (resumeFrom > 0) {
+                connection.setRequestProperty("Range", "bytes=" + resumeFrom + "-");
+                String validator = resumeState.getEtag() != null ? resumeState.getEtag() : resumeState.getLastModified();
+                if (validator != null) {
+                    connection.setRequestProperty("If-Range", validator);
+                }
+            }
             connection.connect();
 
             int responseCode = connection.getResponseCode();
-            if (responseCode != HttpURLConnection.HTTP_OK) {
+            boolean resumed = responseCode == HttpURLConnection.HTTP_PARTIAL && resumeFrom > 0
+                    && contentRangeStart(connection.getHeaderField("Content-Range")) == resumeFrom;
+            if (responseCode != HttpURLConnection.HTTP_OK && !resumed) {
+                // Throttling and server errors mean we're asking too much of the server
+                if (responseCode == 429 || responseCode >= 500) {
+                    concurrencyController.recordError();
+                }
+
+                // The recorded offset doesn't fit the file on the server, start over next time
+                if (responseCode == 416) {
+                    partFile.delete();
+                }
+
+                // Other client errors won't go away by retrying after a restart, the download is
+                // given up on right away. It stays listed with its error until cleared, as
+                // cancelled so clearing it doesn't record the cancel a second time.
+                if (responseCode >= 400 && responseCode < 500 && responseCode != 408 && responseCode != 429
+                        && responseCode != 416) {
+                    journal.recordCancelled(task);
+                    downloadIndex.setState(task, DownloadIndex.State.CANCELLED);
+                    partFile.delete();
+                } else {
+                    downloadIndex.setState(task, DownloadIndex.State.FAILED);
+                }
                 HttpURLConnection finalConnection = connection;
                 Platform.runLater(() -> {
                     try {
@@ -171,126 +568,331 @@ public class DownloadService {
                 return;
             }
 
-            // Get file size
+            if (resumed) {
+                // Drop anything past what the sidecar vouches for, then append
+                partFile.truncate(resumeFrom);
+                totalBytesRead = resumeFrom;
+            }
+            etag = connection.getHeaderField("ETag");
+            lastModified = connection.getHeaderField("Last-Modified");
+
+            // Get file size, a resumed response only covers the remaining bytes
             long contentLength = connection.getContentLengthLong();
             boolean knownFileSize = contentLength > 0;
+            if (knownFileSize) {
+                contentLength += totalBytesRead;
+            }
 
-            // Set up streams
-            try (InputStream inputStream = connection.getInputStream();
-                 FileOutputStream outputStream = new FileOutputStream(destFile)) {
+            // Large files on servers that accept ranges are fetched over several connections,
+            // a 206 answer to the resume request already proves range support
+            boolean acceptsRanges = resumed || "bytes".equalsIgnoreCase(connection.getHeaderField("Accept-Ranges"));
+            task.setTotalBytes(knownFileSize ? contentLength : -1);
+            task.setBytesDone(totalBytesRead);
+            task.setConnections(1);
+            progressPublisher.track(task);
+
+            // Files listed in a DAT are hashed as they arrive. Every download also keeps a CRC32
+            // that goes into its checkpoints, so a resumed download continues from the recorded
+            // CRC32 instead of reading back the part on disk. MD5 and SHA-1 can't be continued,
+            // resumed downloads are verified by CRC32 and size only, or not at all when the
+            // checkpoint has no CRC32. DATs list the files inside archives, so archives are
+            // verified by their contents when extracted or against their DAT game when kept.
+            DatIndex.Entry datEntry = ExtractionService.isArchive(destFile) ? null : datIndex.get(destFile.getName());
+            if (resumed) {
+                checksums = resumeState.getCrc32() >= 0 ? Checksums.continueFrom(resumeState.getCrc32(), resumeFrom) : null;
+            } else {
+                checksums = new Checksums(true, datEntry != null && datEntry.getMd5() != null,
+                        datEntry != null && datEntry.getSha1() != null);
+            }
 
-                byte[] buffer = new byte[BUFFER_SIZE];
-                int bytesRead;
-                long totalBytesRead = 0;
+            // Zips can be unpacked straight from the network without ever storing the archive,
+            // only for fresh downloads since there is nothing to resume from. Kept archives are
+            // what tells a later enqueue the ROM is already there, so only archives that would
+            // be deleted after extraction anyway are streamed.
+            int streamedFiles = -1;
+            if (extractArchives && deleteArchivesAfterExtraction && streamZipExtraction && !resumed
+                    && ExtractionService.isZip(destFile)) {
+                partFile.delete();
+                try (InputStream inputStream = meteredStream(connection.getInputStream(), task)) {
+                    streamedFiles = extractionService.extractZip(inputStream, destFile.getAbsoluteFile().getParentFile(), task);
+                    // Drain the rest of the response so the download counts all of it
+                    inputStream.transferTo(OutputStream.nullOutputStream());
+                } catch (InterruptedIOException e) {
+                    // A read timeout is an InterruptedIOException too, that is a failure
+                    if (!Thread.currentThread().isInterrupted() && !shuttingDown) {
+                        throw e;
+                    }
+                    markCancelled(task, partFile, new PartFile.State(task.getUrl(), etag, lastModified, 0, 0));
+                    return;
+                }
+                totalBytesRead = task.getBytesDone();
+            } else if (knownFileSize && acceptsRanges && contentLength - totalBytesRead >= SEGMENTED_MIN_BYTES) {
+                segmented = new SegmentedDownload(task.getUrl(), partFile.getDataFile(), contentLength,
+                        hostLimiter, segmentExecutor, globalBandwidth, task.getBandwidthLimit());
+                try {
+                    downloadSegmented(task, partFile, segmented, connection, totalBytesRead, crc32Of(checksums),
+                            etag, lastModified);
+                } catch (InterruptedException e) {
+                    SegmentedDownload.Prefix prefix = segmented.getContiguousPrefix();
+                    markCancelled(task, partFile,
+                            new PartFile.State(task.getUrl(), etag, lastModified, prefix.getLength(), prefix.getCrc32()));
+                    return;
+                }
+                totalBytesRead = contentLength;
+
+                // Segments arrive out of order, only their CRC32s can be combined. MD5 and SHA-1
+                // would need another pass over the file, so segmented downloads are verified by
+                // CRC32 and size only.
+                long crc32 = segmented.getContiguousPrefix().getCrc32();
+                checksums = crc32 >= 0 ? Checksums.continueFrom(crc32, contentLength) : null;
+            } else {
+                // Set up streams
+                try (InputStream inputStream = connection.getInputStream();
+                     FileOutputStream outputStream = new FileOutputStream(partFile.getDataFile(), resumed)) {
+
+                    byte[] buffer = new byte[BUFFER_SIZE];
+                    int bytesRead;
+
+                    long lastCheckpointTime = System.currentTimeMillis();
+
+                    while ((bytesRead = inputStream.read(buffer)) != -1) {
+                        // Check if we should cancel
+                        if (Thread.currentThread().isInterrupted()) {
+                            // Close resources manually before returning
+                            outputStream.close();
+
+                            markCancelled(task, partFile,
+                                    new PartFile.State(task.getUrl(), etag, lastModified, totalBytesRead,
+                                            crc32Of(checksums)));
+                            return;
+                        }
 
-                long lastUpdateTime = System.currentTimeMillis();
-                long startTime = System.currentTimeMillis();
+                        // Wait for the bandwidth limits before taking in more data
+                        try {
+                            globalBandwidth.acquire(bytesRead);
+                            task.getBandwidthLimit().acquire(bytesRead);
+                        } catch (InterruptedException e) {
+                            // The stream is closed by try-with-resources
+                            markCancelled(task, partFile,
+                                    new PartFile.State(task.getUrl(), etag, lastModified, totalBytesRead,
+                                            crc32Of(checksums)));
+                            return;
+                        }
 
-                // For download speed calculation
-                long lastSpeedUpdateTime = startTime;
-                long bytesAtLastSpeedUpdate = 0;
-                String currentSpeed = "Calculating...";
+                        outputStream.write(buffer, 0, bytesRead);
+                        if (checksums != null) {
+                            checksums.update(buffer, 0, bytesRead);
+                        }
+                        totalBytesRead += bytesRead;
+                        task.setBytesDone(totalBytesRead);
+                        concurrencyController.recordBytes(bytesRead);
+
+                        // Checkpoint the resume state every second
+                        long currentTime = System.currentTimeMillis();
+                        if (currentTime - lastCheckpointTime > 1000) {
+                            lastCheckpointTime = currentTime;
+                            partFile.save(new PartFile.State(task.getUrl(), etag, lastModified, totalBytesRead,
+                                    crc32Of(checksums)));
+                            journal.recordProgress(task, totalBytesRead);
+                        }
+                    }
+                }
+            }
 
-                while ((bytesRead = inputStream.read(buffer)) != -1) {
-                    // Check if we should cancel
-                    if (Thread.currentThread().isInterrupted()) {
-                        Platform.runLater(() -> task.setStatus("Cancelled"));
+            progressPublisher.untrack(task);
 
-                        // Close resources manually before returning
-                        outputStream.close();
+            // Move the finished file into place
+            if (streamedFiles < 0 && !partFile.complete()) {
+                downloadIndex.setState(task, DownloadIndex.State.FAILED);
+                Platform.runLater(() -> task.setStatus("Error: Cannot move file into place"));
+                return;
+            }
+            journal.recordCompleted(task);
+            downloadIndex.setState(task, DownloadIndex.State.COMPLETE);
+
+            if (datEntry != null && checksums != null && datEntry.canCheck(checksums)) {
+                task.setVerification(datEntry.matches(checksums)
+                        ? DownloadTask.Verification.VERIFIED : DownloadTask.Verification.MISMATCH);
+            } else if (!extractArchives && ExtractionService.isZip(destFile)) {
+                task.setVerification(extractionService.verifyZip(destFile));
+            }
 
-                        // Delete the partial file
-                        if (destFile.exists()) {
-                            destFile.delete();
-                        }
+            // Always ensure the final state is correctly set
+            String completeStatus = "Complete: " + formatFileSize(totalBytesRead);
+            String finalStatus = streamedFiles >= 0
+                    ? completeStatus + ", extracted " + streamedFiles + (streamedFiles == 1 ? " file" : " files")
+                            + verificationSuffix(task.getVerification())
+                    : completeStatus + verificationSuffix(task.getVerification());
+            Platform.runLater(() -> {
+                task.setProgress(1.0); // Always set to 100% when download is complete
+                task.setStatus(finalStatus);
+            });
 
-                        // Schedule task removal after delay
-                        scheduledExecutor.schedule(() -> {
-                            Platform.runLater(() -> {
-                                downloadTasks.remove(task);
-                            });
-                        }, 1, TimeUnit.SECONDS);
+            // Hand finished archives to the extraction stage
+            if (streamedFiles < 0 && extractArchives && ExtractionService.isArchive(destFile)) {
+                extractionService.submit(task, destFile, deleteArchivesAfterExtraction, finalStatus);
+            }
 
-                        return;
-                    }
+        } catch (IOException e) {
+            e.printStackTrace();
+            progressPublisher.untrack(task);
+            downloadIndex.setState(task, DownloadIndex.State.FAILED);
+            concurrencyController.recordError();
+
+            // Keep the partial file so the download can pick up where it stopped,
+            // for a segmented download only the completely written prefix counts
+            if (partFile.getDataFile().exists()) {
+                PartFile.State checkpoint;
+                if (segmented != null) {
+                    SegmentedDownload.Prefix prefix = segmented.getContiguousPrefix();
+                    checkpoint = new PartFile.State(task.getUrl(), etag, lastModified, prefix.getLength(), prefix.getCrc32());
+                } else {
+                    checkpoint = new PartFile.State(task.getUrl(), etag, lastModified, totalBytesRead, crc32Of(checksums));
+                }
+                partFile.save(checkpoint);
+                journal.recordProgress(task, checkpoint.getBytesWritten());
+            }
 
-                    outputStream.write(buffer, 0, bytesRead);
-                    totalBytesRead += bytesRead;
+            Platform.runLater(() -> task.setStatus("Error: " + e.getMessage()));
+        } finally {
+            if (connection != null) {
+                connection.disconnect();
+            }
+        }
+    }
 
-                    // Current time for update calculations
-                    long currentTime = System.currentTimeMillis();
+    /**
+     * Fetch the rest of a large file over several connections, the already open connection
+     * becomes the first segment. Progress of all segments is aggregated into the task's counters.
+     */
+    private void downloadSegmented(DownloadTask task, PartFile partFile, SegmentedDownload segmented,
+                                   HttpURLConnection connection, long offset, long offsetCrc32, String etag,
+                                   String lastModified) throws IOException, InterruptedException {
+        segmented.run(connection, offset, offsetCrc32, MAX_SEGMENTS_PER_FILE, new SegmentedDownload.ProgressListener() {
+            private long lastCheckpointTime = System.currentTimeMillis();
+            private long bytesAtLastProgress = offset;
+
+            @Override
+            public void onProgress(long bytesDone, int connections) {
+                task.setBytesDone(bytesDone);
+                task.setConnections(connections);
+                concurrencyController.recordBytes(bytesDone - bytesAtLastProgress);
+                bytesAtLastProgress = bytesDone;
+
+                // Checkpoint the resume state every second
+                long currentTime = System.currentTimeMillis();
+                if (currentTime - lastCheckpointTime > 1000) {
+                    lastCheckpointTime = currentTime;
+                    SegmentedDownload.Prefix prefix = segmented.getContiguousPrefix();
+                    partFile.save(new PartFile.State(task.getUrl(), etag, lastModified, prefix.getLength(),
+                            prefix.getCrc32()));
+                    journal.recordProgress(task, prefix.getLength());
+                }
+            }
+        }, PROGRESS_UPDATE_INTERVAL_MS);
+    }
 
-                    // Update download speed every 1 second
-                    if (currentTime - lastSpeedUpdateTime > 1000) {
-                        long bytesInInterval = totalBytesRead - bytesAtLastSpeedUpdate;
-                        long timeInterval = currentTime - lastSpeedUpdateTime;
+    /**
+     * A cancelled download is not resumed, drop its partial file and take it off the list.
+     * An interrupt caused by the application closing is no cancel though, the checkpoint is
+     * kept so the download resumes on the next start.
+     */
+    private void markCancelled(DownloadTask task, PartFile partFile, PartFile.State checkpoint) {
+        progressPublisher.untrack(task);
+        if (shuttingDown) {
+            if (partFile.getDataFile().exists()) {
+                partFile.save(checkpoint);
+                journal.recordProgress(task, checkpoint.getBytesWritten());
+            }
+            return;
+        }
+        journal.recordCancelled(task);
+        downloadIndex.setState(task, DownloadIndex.State.CANCELLED);
+        Platform.runLater(() -> task.setStatus("Cancelled"));
 
-                        // Calculate speed
-                        if (timeInterval > 0) {
-                            double speedBps = (bytesInInterval * 1000.0) / timeInterval;
-                            currentSpeed = formatFileSize(speedBps) + "/s";
-                        }
+        partFile.delete();
 
-                        lastSpeedUpdateTime = currentTime;
-                        bytesAtLastSpeedUpdate = totalBytesRead;
-                    }
+        // Schedule task removal after delay
+        scheduledExecutor.schedule(() -> {
+            Platform.runLater(() -> {
+                downloadTasks.remove(task);
+                downloadIndex.remove(task);
+            });
+        }, 1, TimeUnit.SECONDS);
+    }
 
-                    // Update progress based on known file size
-                    if (knownFileSize && (currentTime - lastUpdateTime > PROGRESS_UPDATE_INTERVAL_MS)) {
-                        lastUpdateTime = currentTime;
+    /**
+     * Wrap a download stream so whatever reads it is throttled and counted like the
+     * regular read loop, used when the data is consumed by something else than a file
+     */
+    private InputStream meteredStream(InputStream in, DownloadTask task) {
+        return new FilterInputStream(in) {
+            @Override
+            public int read() throws IOException {
+                byte[] single = new byte[1];
+                return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+            }
 
-                        // Calculate accurate progress
-                        final double progress = Math.min(0.99, (double) totalBytesRead / contentLength);
-                        final String speedString = currentSpeed;
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedIOException("Download interrupted");
+                }
+                int bytesRead = super.read(buffer, offset, length);
+                if (bytesRead <= 0) {
+                    return bytesRead;
+                }
 
-                        Platform.runLater(() -> {
-                            task.setProgress(progress);
-                            task.setStatus("Downloading: " + speedString);
-                        });
-                    }
-                    // For unknown file sizes, update status with speed only
-                    else if (!knownFileSize && (currentTime - lastUpdateTime > PROGRESS_UPDATE_INTERVAL_MS)) {
-                        lastUpdateTime = currentTime;
-
-                        // Use a constant progress display for unknown size files
-                        final double indeterminateProgress = 0.15;
-                        final String speedString = currentSpeed;
-                        final String downloadedSize = formatFileSize(totalBytesRead);
-
-                        Platform.runLater(() -> {
-                            task.setProgress(indeterminateProgress);
-                            task.setStatus("Downloading: " + downloadedSize + " at " + speedString);
-                        });
-                    }
+                try {
+                    globalBandwidth.acquire(bytesRead);
+                    task.getBandwidthLimit().acquire(bytesRead);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Download interrupted");
                 }
 
-                // Always ensure the final state is correctly set
-                long finalTotalBytesRead = totalBytesRead;
-                Platform.runLater(() -> {
-                    task.setProgress(1.0); // Always set to 100% when download is complete
-                    String finalSize = formatFileSize(finalTotalBytesRead);
-                    task.setStatus("Complete: " + finalSize);
-                });
+                task.setBytesDone(task.getBytesDone() + bytesRead);
+                concurrencyController.recordBytes(bytesRead);
+                return bytesRead;
             }
+        };
+    }
 
-        } catch (IOException e) {
-            e.printStackTrace();
+    /**
+     * CRC32 of what was hashed so far for a checkpoint, -1 if unknown
+     */
+    private static long crc32Of(Checksums checksums) {
+        return checksums != null ? checksums.getCrc32Value() : -1;
+    }
 
-            // Delete the partial file on error
-            if (destFile.exists()) {
-                destFile.delete();
-            }
+    private static String verificationSuffix(DownloadTask.Verification verification) {
+        switch (verification) {
+            case VERIFIED:
+                return ", verified";
+            case MISMATCH:
+                return ", checksum mismatch";
+            default:
+                return "";
+        }
+    }
 
-            Platform.runLater(() -> task.setStatus("Error: " + e.getMessage()));
-        } finally {
-            if (connection != null) {
-                connection.disconnect();
-            }
+    /**
+     * First byte offset of a "bytes start-end/total" Content-Range header, -1 if missing or malformed
+     */
+    private long contentRangeStart(String contentRange) {
+        if (contentRange == null || !contentRange.startsWith("bytes ")) {
+            return -1;
+        }
+        int dash = contentRange.indexOf('-');
+        try {
+            return dash > 6 ? Long.parseLong(contentRange.substring(6, dash).trim()) : -1;
+        } catch (NumberFormatException e) {
+            return -1;
         }
     }
 
     // Helper method to format file size in human-readable format
-    private String formatFileSize(double bytes) {
+    static String formatFileSize(double bytes) {
         if (bytes < 1024) {
             return String.format("%.0f B", bytes);
         } else if (bytes < 1024 * 1024) {
@@ -310,8 +912,11 @@ public class DownloadService {
                 future.cancel(true);
             }
 
-            // Remove from active downloads if present
+            // Remove from active downloads if present, a download cancelled before it
+            // started never reaches its own cleanup
             activeDownloads.remove(task);
+            releaseHostSlot(task);
+            progressPublisher.untrack(task);
 
             // Remove from pending queue if present
             pendingDownloads.remove(task);
@@ -320,16 +925,16 @@ public class DownloadService {
                 task.setStatus("Cancelled");
             });
 
-            // Delete the partially downloaded file
-            File destFile = new File(task.getDestination());
-            if (destFile.exists()) {
-                destFile.delete();
-            }
+            // Delete the partially downloaded file, a cancelled download is not resumed
+            journal.recordCancelled(task);
+            downloadIndex.setState(task, DownloadIndex.State.CANCELLED);
+            new PartFile(new File(task.getDestination())).delete();
 
             // Schedule removal of the task after 1 second delay
             scheduledExecutor.schedule(() -> {
                 Platform.runLater(() -> {
                     downloadTasks.remove(task);
+                    downloadIndex.remove(task);
                 });
             }, 1, TimeUnit.SECONDS);
 
@@ -369,40 +974,66 @@ public class DownloadService {
     public void clearCompletedTasks() {
         // Create a list to store tasks to be removed
         // (to avoid ConcurrentModificationException)
-        ObservableList<DownloadTask> tasksToRemove = FXCollections.observableArrayList();
+        List<DownloadTask> tasksToRemove = new ArrayList<>();
 
         for (DownloadTask task : downloadTasks) {
-            String status = task.getStatus();
-            if ("Complete".equals(status) || "Cancelled".equals(status) ||
-                    status.startsWith("Error")) {
+            DownloadIndex.State state = downloadIndex.getState(task);
+            if (isFinished(state)) {
                 tasksToRemove.add(task);
 
+                // Failed downloads are given up on, don't retry them on the next start
+                // and drop the partial data nothing will resume anymore
+                if (state == DownloadIndex.State.FAILED) {
+                    journal.recordCancelled(task);
+                    new PartFile(new File(task.getDestination())).delete();
+                }
+
                 // Also remove any associated futures
                 taskFutures.remove(task);
             }
         }
 
         // Now remove all tasks in the secondary list
-        Platform.runLater(() -> downloadTasks.removeAll(tasksToRemove));
+        Platform.runLater(() -> {
+            downloadTasks.removeAll(tasksToRemove);
+            for (DownloadTask task : tasksToRemove) {
+                downloadIndex.remove(task);
+            }
+        });
     }
 
     public boolean canClearTasks() {
         // Can clear if any tasks are in a final state (Complete, Cancelled, or Error)
         for (DownloadTask task : downloadTasks) {
-            String status = task.getStatus();
-            if ("Complete".equals(status) || "Cancelled".equals(status) ||
-                    status.startsWith("Error")) {
+            if (isFinished(downloadIndex.getState(task))) {
                 return true;
             }
         }
         return false;
     }
 
+    private static boolean isFinished(DownloadIndex.State state) {
+        return state == DownloadIndex.State.COMPLETE || state == DownloadIndex.State.FAILED
+                || state == DownloadIndex.State.CANCELLED;
+    }
+
     public void shutdown() {
+        shuttingDown = true;
         if (downloadExecutor != null) {
             downloadExecutor.shutdownNow();
         }
         queueManagerExecutor.shutdownNow();
         scheduledExecutor.shutdownNow();
+        segmentExecutor.shutdownNow();
+        datLoaderExecutor.shutdownNow();
+        extractionService.shutdown();
+
+        // Give interrupted downloads a moment to checkpoint before the journal closes
+        try {
+            downloadExecutor.awaitTermination(SHUTDOWN_CHECKPOINT_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        journal.close();
     }
 }
\ No newline at end of file
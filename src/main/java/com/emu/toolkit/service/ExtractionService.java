@@ -0,0 +1,286 @@
+package com.emu.toolkit.service;
+
+import com.emu.toolkit.model.DatIndex;
+import com.emu.toolkit.model.DownloadTask;
+import com.emu.toolkit.util.Checksums;
+import com.emu.toolkit.util.PartFile;
+import javafx.application.Platform;
+import org.apache.commons.compress.archivers.sevenz.SevenZArchiveEntry;
+import org.apache.commons.compress.archivers.sevenz.SevenZFile;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Post-download stage that unpacks finished .zip and .7z archives into the folder they were
+ * downloaded to. Extraction runs on its own small pool, so decompressing never occupies a
+ * download slot. Extracted files listed in a DAT are checksummed as they are written, this is
+ * how archives are verified since DATs list the files inside them.
+ */
+public class ExtractionService {
+    private static final int EXTRACTION_THREADS = 2;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(EXTRACTION_THREADS, runnable -> {
+        Thread thread = new Thread(runnable, "archive-extract");
+        thread.setDaemon(true); // Don't block application shutdown
+        return thread;
+    });
+
+    private final Supplier<DatIndex> datIndex;
+
+    public ExtractionService(Supplier<DatIndex> datIndex) {
+        this.datIndex = datIndex;
+    }
+
+    public static boolean isArchive(File file) {
+        return isZip(file) || file.getName().toLowerCase(Locale.ROOT).endsWith(".7z");
+    }
+
+    public static boolean isZip(File file) {
+        return file.getName().toLowerCase(Locale.ROOT).endsWith(".zip");
+    }
+
+    /**
+     * Queue a downloaded archive for extraction next to it. The task's status is extended
+     * with the outcome, the archive is deleted afterwards if requested and all went well.
+     */
+    public void submit(DownloadTask task, File archive, boolean deleteArchive, String completeStatus) {
+        Platform.runLater(() -> task.setStatus(completeStatus + ", extracting..."));
+        executor.submit(() -> {
+            try {
+                Tally tally = new Tally();
+                int files = isZip(archive)
+                        ? extractZip(archive, archive.getParentFile(), tally)
+                        : extract7z(archive, archive.getParentFile(), tally);
+                boolean verifiedContents = tally.applyTo(task);
+
+                if (deleteArchive && !archive.delete()) {
+                    System.err.println("Could not delete archive " + archive);
+                }
+
+                String status = completeStatus + ", extracted " + files + (files == 1 ? " file" : " files")
+                        + (verifiedContents ? verificationSuffix(tally) : "");
+                Platform.runLater(() -> task.setStatus(status));
+            } catch (IOException e) {
+                e.printStackTrace();
+                Platform.runLater(() -> task.setStatus(completeStatus + ", extraction failed: " + e.getMessage()));
+            }
+        });
+    }
+
+    /**
+     * Check a zip that is kept packed against the DAT game of the same name, from the sizes and
+     * CRC32s in its directory. No entry data is read, the recorded CRC32s are only checked
+     * against the data when the zip is extracted. UNVERIFIED if no DAT lists the game.
+     */
+    public DownloadTask.Verification verifyZip(File archive) {
+        String name = archive.getName();
+        List<DatIndex.Entry> roms = datIndex.get().getGame(name.substring(0, name.length() - ".zip".length()));
+        if (roms.isEmpty()) {
+            return DownloadTask.Verification.UNVERIFIED;
+        }
+
+        boolean checked = false;
+        try (ZipFile zip = new ZipFile(archive)) {
+            for (DatIndex.Entry rom : roms) {
+                ZipEntry entry = zip.getEntry(rom.getName());
+                if (entry == null || rom.getSize() >= 0 && rom.getSize() != entry.getSize()) {
+                    return DownloadTask.Verification.MISMATCH;
+                }
+                if (rom.getCrc32() != null) {
+                    if (!rom.getCrc32().equals(String.format("%08x", entry.getCrc()))) {
+                        return DownloadTask.Verification.MISMATCH;
+                    }
+                    checked = true;
+                }
+            }
+        } catch (IOException e) {
+            // Not a readable zip, so not the game
+            e.printStackTrace();
+            return DownloadTask.Verification.MISMATCH;
+        }
+        return checked ? DownloadTask.Verification.VERIFIED : DownloadTask.Verification.UNVERIFIED;
+    }
+
+    /**
+     * Extract a zip while it is still being downloaded, the compressed data never touches the
+     * disk. Runs on the calling thread. Returns the number of files written. If the stream
+     * fails, the files already written are deleted again, there is no archive left to finish
+     * them from and a partial set would look complete.
+     */
+    public int extractZip(InputStream in, File targetDir, DownloadTask task) throws IOException {
+        Tally tally = new Tally();
+        List<File> written = new ArrayList<>();
+        ZipInputStream zip = new ZipInputStream(in);
+        try {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                if (entry.isDirectory()) {
+                    resolve(targetDir, entry.getName()).mkdirs();
+                } else {
+                    writeEntry(zip, targetDir, entry.getName(), tally);
+                    written.add(resolve(targetDir, entry.getName()));
+                }
+            }
+        } catch (IOException e) {
+            for (File file : written) {
+                if (!file.delete()) {
+                    System.err.println("Could not delete partially extracted file " + file);
+                }
+            }
+            throw e;
+        }
+        tally.applyTo(task);
+        return written.size();
+    }
+
+    private int extractZip(File archive, File targetDir, Tally tally) throws IOException {
+        int files = 0;
+        try (ZipFile zip = new ZipFile(archive)) {
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                if (entry.isDirectory()) {
+                    resolve(targetDir, entry.getName()).mkdirs();
+                    continue;
+                }
+                try (InputStream in = zip.getInputStream(entry)) {
+                    writeEntry(in, targetDir, entry.getName(), tally);
+                }
+                files++;
+            }
+        }
+        return files;
+    }
+
+    private int extract7z(File archive, File targetDir, Tally tally) throws IOException {
+        int files = 0;
+        try (SevenZFile sevenZ = SevenZFile.builder().setFile(archive).get()) {
+            SevenZArchiveEntry entry;
+            while ((entry = sevenZ.getNextEntry()) != null) {
+                if (entry.isDirectory()) {
+                    resolve(targetDir, entry.getName()).mkdirs();
+                    continue;
+                }
+                try (InputStream in = sevenZ.getInputStream(entry)) {
+                    writeEntry(in, targetDir, entry.getName(), tally);
+                }
+                files++;
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Write one entry through a temporary file, so an interrupted extraction never leaves
+     * a truncated file under the real name
+     */
+    private void writeEntry(InputStream in, File targetDir, String name, Tally tally) throws IOException {
+        File target = resolve(targetDir, name);
+        File parent = target.getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Cannot create directory " + parent);
+        }
+
+        DatIndex.Entry datEntry = datIndex.get().get(target.getName());
+        Checksums checksums = datEntry != null ? datEntry.newChecksums() : null;
+
+        File tempFile = new File(target.getPath() + PartFile.PART_SUFFIX);
+        try (OutputStream out = new FileOutputStream(tempFile)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int bytesRead;
+            while ((bytesRead = in.read(buffer)) != -1) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedIOException("Extraction interrupted");
+                }
+                out.write(buffer, 0, bytesRead);
+                if (checksums != null) {
+                    checksums.update(buffer, 0, bytesRead);
+                }
+            }
+        } catch (IOException e) {
+            tempFile.delete();
+            throw e;
+        }
+        Files.move(tempFile.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+        if (checksums != null) {
+            tally.record(datEntry.matches(checksums));
+        }
+    }
+
+    /**
+     * Target file of an entry, rejecting names that would escape the target folder
+     */
+    private static File resolve(File targetDir, String name) throws IOException {
+        Path base = targetDir.toPath().toAbsolutePath().normalize();
+        Path target = base.resolve(name).normalize();
+        if (!target.startsWith(base) || target.equals(base)) {
+            throw new IOException("Archive entry outside target folder: " + name);
+        }
+        return target.toFile();
+    }
+
+    private static String verificationSuffix(Tally tally) {
+        if (tally.mismatched > 0) {
+            return ", " + tally.mismatched + " checksum mismatch" + (tally.mismatched == 1 ? "" : "es");
+        }
+        return tally.verified > 0 ? ", verified" : "";
+    }
+
+    /**
+     * DAT results of the files extracted from one archive
+     */
+    private static class Tally {
+        int verified;
+        int mismatched;
+
+        void record(boolean matches) {
+            if (matches) {
+                verified++;
+            } else {
+                mismatched++;
+            }
+        }
+
+        /**
+         * Archives themselves are rarely in a DAT, so the contents decide unless the archive
+         * was already checked. Returns whether the task's verification was set from them.
+         */
+        boolean applyTo(DownloadTask task) {
+            if (task.getVerification() != DownloadTask.Verification.UNVERIFIED) {
+                return false;
+            }
+            if (mismatched > 0) {
+                task.setVerification(DownloadTask.Verification.MISMATCH);
+            } else if (verified > 0) {
+                task.setVerification(DownloadTask.Verification.VERIFIED);
+            } else {
+                return false;
+            }
+            return true;
+        }
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
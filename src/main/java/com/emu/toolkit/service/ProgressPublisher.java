@@ -0,0 +1,109 @@
+package com.emu.toolkit.service;
+
+import com.emu.toolkit.model.DownloadTask;
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Publishes the progress of running downloads to their UI properties once per frame.
+ * Download threads only update the counters of their task, so the FX event queue sees
+ * one pulse-driven update for all downloads however many run at once. The status text,
+ * which shows the speed, is rebuilt at most once a second. The timer only runs while
+ * at least one download is tracked.
+ */
+public class ProgressPublisher {
+    private static final long SPEED_INTERVAL_NANOS = 1_000_000_000L;
+    // Shown for downloads of unknown size
+    private static final double INDETERMINATE_PROGRESS = 0.15;
+
+    private final Map<DownloadTask, Row> rows = new ConcurrentHashMap<>();
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private final AnimationTimer timer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            publish(now);
+        }
+    };
+
+    /**
+     * Last published state of a task, only touched on the FX thread
+     */
+    private static class Row {
+        long bytesAtSpeedUpdate = -1;
+        long speedUpdateNanos;
+        String speed = "Calculating...";
+        long publishedBytes = -1;
+        int publishedConnections;
+    }
+
+    /**
+     * Start publishing a task's counters, call once its transfer begins
+     */
+    public void track(DownloadTask task) {
+        rows.put(task, new Row());
+        if (!running.getAndSet(true)) {
+            Platform.runLater(timer::start);
+        }
+    }
+
+    /**
+     * Stop publishing a task, call before setting its final status so no later frame overwrites it
+     */
+    public void untrack(DownloadTask task) {
+        rows.remove(task);
+    }
+
+    private void publish(long now) {
+        if (rows.isEmpty()) {
+            running.set(false);
+            timer.stop();
+            // A download may have been tracked while stopping
+            if (!rows.isEmpty() && !running.getAndSet(true)) {
+                timer.start();
+            }
+            return;
+        }
+
+        for (Map.Entry<DownloadTask, Row> entry : rows.entrySet()) {
+            DownloadTask task = entry.getKey();
+            Row row = entry.getValue();
+            long bytes = task.getBytesDone();
+            long total = task.getTotalBytes();
+            int connections = task.getConnections();
+
+            boolean speedChanged = false;
+            if (row.bytesAtSpeedUpdate < 0) {
+                row.bytesAtSpeedUpdate = bytes;
+                row.speedUpdateNanos = now;
+                speedChanged = true;
+            } else if (now - row.speedUpdateNanos >= SPEED_INTERVAL_NANOS) {
+                double speedBps = (bytes - row.bytesAtSpeedUpdate) * 1e9 / (now - row.speedUpdateNanos);
+                row.speed = DownloadService.formatFileSize(speedBps) + "/s";
+                row.bytesAtSpeedUpdate = bytes;
+                row.speedUpdateNanos = now;
+                speedChanged = true;
+            }
+
+            if (bytes != row.publishedBytes) {
+                row.publishedBytes = bytes;
+                task.setProgress(total > 0 ? Math.min(0.99, (double) bytes / total) : INDETERMINATE_PROGRESS);
+            }
+
+            if (speedChanged || connections != row.publishedConnections) {
+                row.publishedConnections = connections;
+                if (total <= 0) {
+                    task.setStatus("Downloading: " + DownloadService.formatFileSize(bytes) + " at " + row.speed);
+                } else if (connections > 1) {
+                    task.setStatus("Downloading: " + row.speed + " (" + connections + " connections)");
+                } else {
+                    task.setStatus("Downloading: " + row.speed);
+                }
+            }
+        }
+    }
+}
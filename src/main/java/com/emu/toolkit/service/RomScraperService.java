@@ -1,53 +1,101 @@
 package com.emu.toolkit.service;
 
+import com.emu.toolkit.model.CatalogMetadata;
+import com.emu.toolkit.model.PlatformConfig;
+import com.emu.toolkit.model.Region;
+import com.emu.toolkit.model.ResolutionPolicy;
+import com.emu.toolkit.model.RomCatalog;
 import com.emu.toolkit.model.RomFile;
+import com.emu.toolkit.util.FuzzyMatcher;
+import com.emu.toolkit.util.HostLimiter;
+import com.emu.toolkit.util.ListingParser;
+import com.emu.toolkit.util.TrigramIndex;
 import javafx.application.Platform;
 import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.SimpleBooleanProperty;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.beans.property.StringProperty;
-import org.jsoup.Jsoup;
-import org.jsoup.nodes.Document;
-import org.jsoup.nodes.Element;
-import org.jsoup.select.Elements;
+import lombok.Getter;
+import org.jsoup.helper.HttpConnection;
 
-import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.Reader;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.net.URLDecoder;
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
  * Service class that handles the ROM scraping logic.
  */
 public class RomScraperService {
+    public static final int DEFAULT_FUZZY_THRESHOLD = 70;
+    private static final int WARMUP_THREADS = 4;
+    private static final int WARMUP_CONNECTIONS_PER_HOST = 2;
+    // Catalogs smaller than this are scored on the calling thread
+    private static final int PARALLEL_FUZZY_THRESHOLD = 20000;
+    private static final int LISTING_TIMEOUT_MS = 30000;
+    // Entry count of the first searchable snapshot of a listing that is still loading
+    private static final int PARTIAL_CATALOG_SIZE = 1024;
+
     private final ExecutorService executorService;
-    private final List<RomFile> romFiles;
-    private final Pattern revisionPattern = Pattern.compile("\\(Rev (\\d+)\\)");
+    private final CatalogCacheService catalogCache;
+    private final CatalogRegistry catalogRegistry = new CatalogRegistry();
+    // Completed once the warm-up of a platform ends, whether it succeeded or not
+    private final Map<String, CompletableFuture<Void>> warmingUp = new ConcurrentHashMap<>();
+    private volatile CatalogRegistry.LoadedCatalog activeCatalog = index(null, "", "", RomCatalog.builder("").build());
     private final String[] filterTerms = {"(demo", "(beta", "(pirate", "(sample", "virtual console"};
-    private String currentExtension = "";
+    private volatile String currentExtension = "";
+    // Bumped by every connect and platform switch, so a load only activates its catalog
+    // while it is still the one the user selected
+    private int activeGeneration;
+    private final AtomicInteger pendingConnects = new AtomicInteger();
+    private int fuzzyThreshold = DEFAULT_FUZZY_THRESHOLD;
 
     // Status properties
     private final StringProperty statusMessage = new SimpleStringProperty("");
     private final BooleanProperty loading = new SimpleBooleanProperty(false);
 
-    public RomScraperService(ExecutorService executorService) {
+    public RomScraperService(ExecutorService executorService, CatalogCacheService catalogCache) {
         this.executorService = executorService;
-        this.romFiles = new ArrayList<>();
+        this.catalogCache = catalogCache;
     }
 
     public boolean hasConnectionWithExtension(String extension) {
         return currentExtension.equals(extension);
     }
 
+    /**
+     * The extension the active catalog was filtered by, including an auto detected one
+     */
+    public String getCurrentExtension() {
+        return currentExtension;
+    }
+
+    /**
+     * Set the minimum similarity (0-100) a fuzzy match needs to be returned
+     */
+    public void setFuzzyThreshold(int fuzzyThreshold) {
+        this.fuzzyThreshold = Math.max(0, Math.min(100, fuzzyThreshold));
+    }
+
+    public int getFuzzyThreshold() {
+        return fuzzyThreshold;
+    }
+
     public StringProperty statusMessageProperty() {
         return statusMessage;
     }
@@ -61,62 +109,337 @@ public class RomScraperService {
     }
 
     public void connectToUrl(String url, String fileExtension, Consumer<Boolean> callback) {
+        connectToUrl(null, url, fileExtension, callback);
+    }
+
+    /**
+     * Connect to a listing and make it the active catalog. When a platform id is given the
+     * catalog is kept resident, so switching back to the platform later doesn't hit the network.
+     * A load that is superseded by another connect or platform switch before it finishes never
+     * touches the active catalog and doesn't report back, a resident catalog is still kept.
+     */
+    public void connectToUrl(String platformId, String url, String fileExtension, Consumer<Boolean> callback) {
+        int generation;
+        CatalogRegistry.LoadedCatalog previous;
+        synchronized (this) {
+            generation = ++activeGeneration;
+            previous = activeCatalog;
+        }
+        pendingConnects.incrementAndGet();
         setLoading(true);
         setStatusMessage("Connecting to " + url + "...");
 
         executorService.submit(() -> {
-            boolean success = connectToUrlInternal(url, fileExtension);
-            Platform.runLater(() -> {
-                setLoading(false);
-                if (success) {
-                    setStatusMessage("Connected. Found " + romFiles.size() + " files.");
-                } else {
-                    setStatusMessage("Connection failed. Check the URL and try again.");
+            boolean success = false;
+            boolean current = false;
+            try {
+                // An empty extension is resolved from the listing itself, in the same fetch.
+                // Large listings become searchable while they are still downloading.
+                // A platform that is still warming up is waited for instead of fetched twice
+                CatalogRegistry.LoadedCatalog loaded = awaitWarmUp(platformId, url, normalizeExtension(fileExtension));
+                if (loaded == null) {
+                    loaded = loadCatalog(platformId, url, normalizeExtension(fileExtension), partial -> {
+                        if (activateIfCurrent(generation, partial)) {
+                            setStatusMessage("Loading... Found " + partial.size() + " files so far.");
+                        }
+                    });
                 }
-                callback.accept(success);
-            });
+                success = loaded != null && loaded.size() > 0;
+
+                if (success && platformId != null) {
+                    catalogRegistry.put(loaded);
+                }
+                // A failed load must not leave a truncated snapshot active
+                current = activateIfCurrent(generation, success ? loaded : previous);
+            } catch (RuntimeException e) {
+                // A listing that can't be parsed is a failed connect, not a stuck one
+                e.printStackTrace();
+                success = false;
+                current = activateIfCurrent(generation, previous);
+            } finally {
+                boolean stillLoading = pendingConnects.decrementAndGet() > 0;
+                boolean connected = success;
+                boolean reportable = current;
+
+                Platform.runLater(() -> {
+                    setLoading(stillLoading);
+                    if (!reportable) {
+                        return;
+                    }
+                    if (connected) {
+                        setStatusMessage("Connected. Found " + getRomFilesCount() + " files.");
+                    } else {
+                        setStatusMessage("Connection failed. Check the URL and try again.");
+                    }
+                    callback.accept(connected);
+                });
+            }
+        });
+    }
+
+    /**
+     * Switch to a platform catalog that is already resident. Returns false when the
+     * catalog has to be loaded first.
+     */
+    public boolean activatePlatform(String platformId, String url, String fileExtension) {
+        CatalogRegistry.LoadedCatalog loaded = catalogRegistry.find(platformId, url, normalizeExtension(fileExtension));
+        if (loaded == null) {
+            return false;
+        }
+
+        synchronized (this) {
+            // Loads still running for another platform are superseded
+            activeGeneration++;
+            activate(loaded);
+        }
+        setStatusMessage("Connected. Found " + getRomFilesCount() + " files.");
+        return true;
+    }
+
+    /**
+     * Fetch and index the catalogs of the given platforms in the background, so later
+     * platform switches and cross-platform searches never wait on the network.
+     * Listings are fetched concurrently on a bounded pool, with a per-host cap so a
+     * mirror serving several platforms isn't hit with every request at once.
+     */
+    public void warmUpCatalogs(List<PlatformConfig> platforms) {
+        List<PlatformConfig> pending = new ArrayList<>();
+        for (PlatformConfig platform : platforms) {
+            // Skip platforms that are resident or already being warmed up
+            if (platform.isConfigured()
+                    && catalogRegistry.find(platform.getId(), platform.getUrl(),
+                            normalizeExtension(platform.getFileExtension())) == null
+                    && warmingUp.putIfAbsent(platform.getId(), new CompletableFuture<>()) == null) {
+                pending.add(platform);
+            }
+        }
+
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        int total = pending.size();
+        AtomicInteger completed = new AtomicInteger();
+        HostLimiter hostLimiter = new HostLimiter(WARMUP_CONNECTIONS_PER_HOST);
+        ExecutorService warmupExecutor = Executors.newFixedThreadPool(Math.min(WARMUP_THREADS, total), runnable -> {
+            Thread thread = new Thread(runnable, "catalog-warmup");
+            thread.setDaemon(true); // Don't block application shutdown
+            return thread;
         });
+
+        setStatusMessage("Loading platform catalogs: 0/" + total);
+
+        for (PlatformConfig platform : pending) {
+            warmupExecutor.submit(() -> {
+                String host = HostLimiter.hostOf(platform.getUrl());
+                try {
+                    hostLimiter.acquire(host);
+                    try {
+                        warmUpCatalog(platform);
+                    } finally {
+                        hostLimiter.release(host);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (RuntimeException e) {
+                    // A listing that can't be parsed only costs this platform
+                    e.printStackTrace();
+                } finally {
+                    warmingUp.remove(platform.getId()).complete(null);
+
+                    // Count every platform, failed ones too, so the progress always completes
+                    int done = completed.incrementAndGet();
+                    if (done == total) {
+                        setStatusMessage("Loaded " + total + " platform catalogs.");
+                    } else {
+                        setStatusMessage("Loading platform catalogs: " + done + "/" + total);
+                    }
+                }
+            });
+        }
+
+        // Let the queued platforms finish, the threads exit afterwards
+        warmupExecutor.shutdown();
+    }
+
+    /**
+     * Wait for a running warm-up of the platform and return the catalog it made resident,
+     * or null when the platform isn't warming up or its warm-up didn't produce the catalog
+     */
+    private CatalogRegistry.LoadedCatalog awaitWarmUp(String platformId, String url, String fileExtension) {
+        CompletableFuture<Void> warmUp = platformId != null ? warmingUp.get(platformId) : null;
+        if (warmUp == null) {
+            return null;
+        }
+        warmUp.join();
+        return catalogRegistry.find(platformId, url, fileExtension);
     }
 
-    private boolean connectToUrlInternal(String url, String fileExtension) {
+    private void warmUpCatalog(PlatformConfig platform) {
+        CatalogRegistry.LoadedCatalog loaded = loadCatalog(platform.getId(), platform.getUrl(),
+                normalizeExtension(platform.getFileExtension()), null);
+        if (loaded != null && loaded.size() > 0) {
+            catalogRegistry.put(loaded);
+        }
+    }
+
+    /**
+     * Set how much memory resident catalogs may use before the least recently used
+     * platform is evicted, 0 keeps every catalog
+     */
+    public void setCatalogMemoryBudget(long bytes) {
+        catalogRegistry.setMemoryBudget(bytes);
+    }
+
+    /**
+     * Activate a catalog of the given load, unless a newer connect or platform switch has
+     * happened since. Returns whether the load is still the current one.
+     */
+    private synchronized boolean activateIfCurrent(int generation, CatalogRegistry.LoadedCatalog loaded) {
+        if (generation != activeGeneration) {
+            return false;
+        }
+        activate(loaded);
+        return true;
+    }
+
+    private void activate(CatalogRegistry.LoadedCatalog loaded) {
+        this.activeCatalog = loaded;
+        this.currentExtension = loaded.getExtension();
+        catalogRegistry.setActive(loaded.getPlatformId());
+    }
+
+    private String normalizeExtension(String fileExtension) {
         if (fileExtension == null) {
-            fileExtension = "";
+            return "";
         }
 
         if (!fileExtension.isEmpty() && !fileExtension.startsWith(".")) {
-            fileExtension = "." + fileExtension;
+            return "." + fileExtension;
         }
 
-        // Store the current extension
-        this.currentExtension = fileExtension;
+        return fileExtension;
+    }
+
+    /**
+     * Fetch (or revalidate) a listing and index the entries matching the extension.
+     * An empty extension is replaced by the most common extension of the listing.
+     * While a fresh listing streams in, snapshots are handed to the partial listener
+     * (if any) each time the number of entries doubles.
+     * Returns null when the listing can't be fetched and nothing is cached.
+     */
+    private CatalogRegistry.LoadedCatalog loadCatalog(String platformId, String url, String fileExtension,
+                                                      Consumer<CatalogRegistry.LoadedCatalog> partialListener) {
+        CatalogCacheService.CachedCatalog cached = catalogCache.load(url);
+        RomCatalog listing;
+        HttpURLConnection connection = null;
 
         try {
-            Document doc = Jsoup.connect(url).get();
-            Elements links = doc.select("a[href]");
-
-            romFiles.clear();
-
-            for (Element link : links) {
-                String href = link.attr("href");
-                if (fileExtension.isEmpty() || href.endsWith(fileExtension)) {
-                    String romName = URLDecoder.decode(href, StandardCharsets.UTF_8);
-
-                    // Filter out unwanted ROMs
-                    if (!containsFilteredTerms(romName.toLowerCase())) {
-                        RomFile romFile = new RomFile(
-                                romName,
-                                resolveUrl(url, href)
-                        );
-                        romFiles.add(romFile);
-                    }
+            connection = (HttpURLConnection) new URL(url).openConnection();
+            connection.setConnectTimeout(LISTING_TIMEOUT_MS);
+            connection.setReadTimeout(LISTING_TIMEOUT_MS);
+            connection.setRequestProperty("User-Agent", HttpConnection.DEFAULT_UA);
+            connection.setRequestProperty("Accept-Encoding", "gzip");
+
+            // Revalidate the cached listing instead of downloading it again
+            if (cached != null) {
+                if (cached.getEtag() != null) {
+                    connection.setRequestProperty("If-None-Match", cached.getEtag());
+                }
+                if (cached.getLastModified() != null) {
+                    connection.setRequestProperty("If-Modified-Since", cached.getLastModified());
                 }
             }
 
-            return !romFiles.isEmpty();
+            int status = connection.getResponseCode();
+            if (status == HttpURLConnection.HTTP_NOT_MODIFIED && cached != null) {
+                listing = cached.getCatalog();
+            } else if (status >= 400) {
+                throw new IOException("HTTP error " + status + " fetching " + url);
+            } else {
+                listing = parseListing(url, connection, fileExtension, platformId, partialListener);
+                catalogCache.save(url, connection.getHeaderField("ETag"),
+                        connection.getHeaderField("Last-Modified"), listing);
+            }
         } catch (IOException e) {
             e.printStackTrace();
-            return false;
+
+            // Fall back to the last known listing when the server can't be reached
+            if (cached == null) {
+                return null;
+            }
+            listing = cached.getCatalog();
+        } finally {
+            if (connection != null) {
+                connection.disconnect();
+            }
+        }
+
+        return index(platformId, url, fileExtension, listing);
+    }
+
+    private CatalogRegistry.LoadedCatalog index(String platformId, String url, String fileExtension, RomCatalog listing) {
+        String extension = fileExtension.isEmpty() ? listing.getMostCommonExtension() : fileExtension;
+
+        // Index and parse the catalog once so searches don't have to scan or re-parse every name
+        RomCatalog catalog = listing.filterByExtension(extension);
+        return new CatalogRegistry.LoadedCatalog(platformId, url, extension, fileExtension, TrigramIndex.build(catalog),
+                CatalogMetadata.parse(catalog));
+    }
+
+    /**
+     * Stream every link of a directory listing into a catalog, dropping unwanted ROMs but
+     * keeping all extensions so the result can be cached and filtered later. The page is
+     * tokenized as it arrives, no DOM is built.
+     */
+    private RomCatalog parseListing(String url, HttpURLConnection connection, String fileExtension, String platformId,
+                                    Consumer<CatalogRegistry.LoadedCatalog> partialListener) throws IOException {
+        RomCatalog.Builder builder = RomCatalog.builder(url);
+        int[] nextSnapshot = {PARTIAL_CATALOG_SIZE};
+
+        InputStream in = connection.getInputStream();
+        if ("gzip".equalsIgnoreCase(connection.getContentEncoding())) {
+            in = new GZIPInputStream(in);
         }
+
+        try (Reader reader = new InputStreamReader(in, charsetOf(connection.getContentType()))) {
+            ListingParser.parse(reader, href -> {
+                String romName = URLDecoder.decode(href, StandardCharsets.UTF_8);
+
+                // Filter out unwanted ROMs
+                if (containsFilteredTerms(romName.toLowerCase())) {
+                    return;
+                }
+                builder.add(romName, href);
+
+                // Publish snapshots at doubling sizes, so the copying stays linear overall
+                if (partialListener != null && builder.size() == nextSnapshot[0]) {
+                    nextSnapshot[0] *= 2;
+                    partialListener.accept(index(platformId, url, fileExtension, builder.build()));
+                }
+            });
+        }
+
+        return builder.build();
+    }
+
+    /**
+     * Charset declared in a Content-Type header, UTF-8 when missing or unknown
+     */
+    private Charset charsetOf(String contentType) {
+        if (contentType != null) {
+            for (String part : contentType.split(";")) {
+                part = part.trim();
+                if (part.toLowerCase().startsWith("charset=")) {
+                    try {
+                        return Charset.forName(part.substring(8).replace("\"", "").trim());
+                    } catch (IllegalArgumentException e) {
+                        break;
+                    }
+                }
+            }
+        }
+        return StandardCharsets.UTF_8;
     }
 
     public void searchRoms(String searchTerm, String region, Consumer<List<RomFile>> callback) {
@@ -133,200 +456,260 @@ public class RomScraperService {
         });
     }
 
+    /**
+     * Search the active catalog on the calling thread. Safe to call from several threads at
+     * once, meant for callers that run many searches in parallel themselves.
+     */
+    public List<RomFile> findRoms(String searchTerm, String region) {
+        return searchRomsInternal(searchTerm, region);
+    }
+
     private List<RomFile> searchRomsInternal(String searchTerm, String region) {
-        if (romFiles.isEmpty()) {
+        CatalogRegistry.LoadedCatalog loaded = activeCatalog;
+        if (loaded.size() == 0) {
             return Collections.emptyList();
         }
 
-        searchTerm = searchTerm.toLowerCase();
-
-        // First try exact matches
-        String finalSearchTerm = searchTerm;
-        List<RomFile> matches = romFiles.stream()
-                .filter(rom -> rom.getName().toLowerCase().contains(finalSearchTerm))
-                .collect(Collectors.toList());
-
-        // If no exact matches, try fuzzy search
+        // First try exact matches, if there are none try fuzzy search
+        List<Match> matches = findExactMatches(loaded, searchTerm);
         if (matches.isEmpty()) {
-            String finalSearchTerm1 = searchTerm;
-            matches = romFiles.stream()
-                    .filter(rom -> calculateSimilarity(finalSearchTerm1, rom.getName().toLowerCase()) >= 70)
-                    .collect(Collectors.toList());
+            matches = findFuzzyMatches(loaded, new FuzzyMatcher(searchTerm));
         }
 
-        // Filter revisions to only keep the latest one
-        matches = filterLatestRevisions(matches);
-
-        // Apply region filtering if requested
-        if (region != null && !matches.isEmpty()) {
-            List<RomFile> regionMatches = matches.stream()
-                    .filter(rom -> rom.getName().contains("(" + region + ")") ||
-                            rom.getName().toLowerCase().contains("(world)"))
-                    .collect(Collectors.toList());
-
-            if (!regionMatches.isEmpty()) {
-                return regionMatches;
-            }
-        }
-
-        return matches;
+        return refineMatches(loaded, matches, Region.selectionMask(region));
     }
 
-    public String detectMostCommonExtension(String url) {
-        try {
-            // Create a connection to the URL
-            URL urlObj = new URL(url);
-            HttpURLConnection conn = (HttpURLConnection) urlObj.openConnection();
-            conn.setRequestMethod("GET");
-            conn.connect();
-
-            // Check if connection was successful
-            if (conn.getResponseCode() != 200) {
-                return "";
-            }
-
-            // Read the first part of the page content
-            try (BufferedReader reader = new BufferedReader(
-                    new InputStreamReader(conn.getInputStream()))) {
-
-                StringBuilder content = new StringBuilder();
-                String line;
-                int lineCount = 0;
-
-                // Only read the first 100 lines to avoid large pages
-                while ((line = reader.readLine()) != null && lineCount < 100) {
-                    content.append(line);
-                    lineCount++;
-                }
-
-                // Use regex to find file extensions in href attributes
-                Pattern pattern = Pattern.compile("href=\"[^\"]*?(\\.[a-zA-Z0-9]{1,4})\"");
-                Matcher matcher = pattern.matcher(content);
-
-                // Count occurrences of each extension
-                Map<String, Integer> extensionCounts = new HashMap<>();
+    public void searchAllPlatforms(String searchTerm, String region, Consumer<List<RomFile>> callback) {
+        setLoading(true);
+        setStatusMessage("Searching all platforms for: " + searchTerm);
 
-                while (matcher.find()) {
-                    String ext = matcher.group(1).toLowerCase();
-                    extensionCounts.put(ext, extensionCounts.getOrDefault(ext, 0) + 1);
-                }
+        executorService.submit(() -> {
+            List<CatalogRegistry.LoadedCatalog> catalogs = catalogRegistry.getLoadedCatalogs();
+            List<RomFile> results = searchAllPlatformsInternal(catalogs, searchTerm, region);
+            Platform.runLater(() -> {
+                setLoading(false);
+                setStatusMessage("Found " + results.size() + " results for: " + searchTerm
+                        + " across " + catalogs.size() + " platforms");
+                callback.accept(results);
+            });
+        });
+    }
 
-                // Find the most common extension
-                String mostCommonExt = "";
-                int maxCount = 0;
+    private List<RomFile> searchAllPlatformsInternal(List<CatalogRegistry.LoadedCatalog> catalogs,
+                                                     String searchTerm, String region) {
+        // Exact matches in any platform take precedence over fuzzy matches everywhere
+        List<List<Match>> perPlatform = catalogs.parallelStream()
+                .map(loaded -> findExactMatches(loaded, searchTerm))
+                .collect(Collectors.toList());
 
-                for (Map.Entry<String, Integer> entry : extensionCounts.entrySet()) {
-                    if (entry.getValue() > maxCount) {
-                        maxCount = entry.getValue();
-                        mostCommonExt = entry.getKey();
-                    }
-                }
+        if (perPlatform.stream().allMatch(List::isEmpty)) {
+            perPlatform = catalogs.parallelStream()
+                    .map(loaded -> findFuzzyMatches(loaded, new FuzzyMatcher(searchTerm)))
+                    .collect(Collectors.toList());
+        }
 
-                return mostCommonExt;
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
+        // Revisions and regions are resolved per platform, then everything is ranked together
+        int regionMask = Region.selectionMask(region);
+        List<RomFile> merged = new ArrayList<>();
+        for (int i = 0; i < catalogs.size(); i++) {
+            merged.addAll(refineMatches(catalogs.get(i), perPlatform.get(i), regionMask));
         }
 
-        return "";
+        merged.sort(Comparator.comparingInt(RomFile::getMatchScore).reversed()
+                .thenComparingInt(rom -> rom.getName().length())
+                .thenComparing(RomFile::getName));
+        return merged;
     }
 
-    public int getRomFilesCount() {
-        return romFiles.size();
-    }
+    /**
+     * A catalog entry that matched a search, before it is turned into a {@link RomFile}
+     */
+    private static class Match {
+        private final int id;
+        private final int score;
 
-    private void setLoading(boolean loading) {
-        Platform.runLater(() -> this.loading.set(loading));
+        private Match(int id, int score) {
+            this.id = id;
+            this.score = score;
+        }
     }
 
-    private boolean containsFilteredTerms(String name) {
-        for (String term : filterTerms) {
-            if (name.contains(term)) {
-                return true;
-            }
+    private List<Match> findExactMatches(CatalogRegistry.LoadedCatalog loaded, String searchTerm) {
+        List<Match> matches = new ArrayList<>();
+        for (int id : loaded.getIndex().findContaining(searchTerm)) {
+            matches.add(new Match(id, RomFile.EXACT_MATCH_SCORE));
         }
-        return false;
+        return matches;
     }
 
-    private List<RomFile> filterLatestRevisions(List<RomFile> roms) {
-        Map<String, RomFile> latestRevisions = new HashMap<>();
+    /**
+     * Score every entry of a catalog against the matcher. Large catalogs are split
+     * into id ranges that are scored in parallel on the common fork/join pool.
+     */
+    private List<Match> findFuzzyMatches(CatalogRegistry.LoadedCatalog loaded, FuzzyMatcher matcher) {
+        RomCatalog catalog = loaded.getCatalog();
+        byte[] names = catalog.getNameBytes();
+        int threshold = fuzzyThreshold;
+
+        IntStream ids = IntStream.range(0, catalog.size());
+        if (catalog.size() >= PARALLEL_FUZZY_THRESHOLD) {
+            ids = ids.parallel();
+        }
 
-        for (RomFile rom : roms) {
-            // Extract the base name (without revision) and remove all spaces
-            String baseName = rom.getName().replaceAll("\\(Rev \\d+\\)", "").replace(" ", "");
+        return ids.mapToObj(id -> {
+                    int score = matcher.score(names, catalog.nameStart(id), catalog.nameEnd(id));
+                    return score >= threshold ? new Match(id, score) : null;
+                })
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
 
-            // Extract revision number if present
-            Matcher revMatcher = revisionPattern.matcher(rom.getName());
-            int revision = 0;
-            if (revMatcher.find()) {
-                revision = Integer.parseInt(revMatcher.group(1));
+    /**
+     * Keep only the latest revision of each ROM and narrow down to the region if requested.
+     * Both steps work on the metadata parsed at index time, only the survivors are materialized.
+     */
+    private List<RomFile> refineMatches(CatalogRegistry.LoadedCatalog loaded, List<Match> matches, int regionMask) {
+        CatalogMetadata metadata = loaded.getMetadata();
+
+        // Filter revisions to only keep the latest one
+        Map<Integer, Match> latestRevisions = new LinkedHashMap<>();
+        for (Match match : matches) {
+            latestRevisions.merge(metadata.getRevisionGroupId(match.id), match, (current, candidate) ->
+                    metadata.getRevision(candidate.id) > metadata.getRevision(current.id) ? candidate : current);
+        }
+        Collection<Match> refined = latestRevisions.values();
+
+        // Apply region filtering if requested, worldwide releases always qualify
+        if (regionMask != 0) {
+            List<Match> regionMatches = new ArrayList<>();
+            for (Match match : refined) {
+                if ((metadata.getRegionMask(match.id) & regionMask) != 0) {
+                    regionMatches.add(match);
+                }
             }
 
-            // Update if no entry exists or the current revision is higher
-            if (!latestRevisions.containsKey(baseName) ||
-                    getRevisionNumber(latestRevisions.get(baseName).getName()) < revision) {
-                latestRevisions.put(baseName, rom);
+            if (!regionMatches.isEmpty()) {
+                refined = regionMatches;
             }
         }
 
-        // Return only the latest ROMs
-        return new ArrayList<>(latestRevisions.values());
+        RomCatalog catalog = loaded.getCatalog();
+        List<RomFile> results = new ArrayList<>(refined.size());
+        for (Match match : refined) {
+            results.add(catalog.getRomFile(match.id, loaded.getPlatformId(), match.score));
+        }
+        return results;
     }
 
-    private int getRevisionNumber(String romName) {
-        Matcher matcher = revisionPattern.matcher(romName);
-        if (matcher.find()) {
-            return Integer.parseInt(matcher.group(1));
+    /**
+     * Outcome of {@link #buildFullSet}
+     */
+    @Getter
+    public static class FullSet {
+        // In catalog order, every disc of a multi-disc game
+        private final List<RomFile> roms;
+        private final int games;
+        // Entries left out as bad dumps or for an excluded keyword
+        private final int excluded;
+
+        private FullSet(List<RomFile> roms, int games, int excluded) {
+            this.roms = roms;
+            this.games = games;
+            this.excluded = excluded;
         }
-        return 0;
     }
 
-    private String resolveUrl(String base, String href) {
-        if (href.startsWith("http")) {
-            return href;
+    /**
+     * One ROM per game of the active catalog (1G1R). Entries are grouped by title and the
+     * best release of each game by the policy's ranking is kept, which also keeps only its
+     * latest revision. Every disc of the chosen release is kept, each in its best revision.
+     * With a region priority, games released in none of the listed regions are left out.
+     * Works on the metadata parsed at index time in two passes.
+     */
+    public FullSet buildFullSet(ResolutionPolicy policy) {
+        CatalogRegistry.LoadedCatalog loaded = activeCatalog;
+        CatalogMetadata metadata = loaded.getMetadata();
+        RomCatalog catalog = loaded.getCatalog();
+
+        int regionMask = 0;
+        for (Region region : policy.getRegionPriority()) {
+            regionMask |= region.bit();
         }
 
-        if (!base.endsWith("/")) {
-            base = base + "/";
-        }
+        // Best entry of each title id and its score, -1 while a title has no candidate
+        int[] best = new int[metadata.getTitleCount()];
+        int[] bestScores = new int[best.length];
+        Arrays.fill(best, -1);
+        // Entries that may be chosen and their scores
+        boolean[] candidates = new boolean[metadata.size()];
+        int[] scores = new int[metadata.size()];
+        int excluded = 0;
+
+        for (int id = 0; id < metadata.size(); id++) {
+            if (regionMask != 0 && (metadata.getRegionMask(id) & regionMask) == 0) {
+                continue;
+            }
+            int flags = metadata.getFlags(id);
+            if (policy.isExcluded(catalog.getName(id), flags)) {
+                excluded++;
+                continue;
+            }
 
-        if (href.startsWith("/")) {
-            href = href.substring(1);
+            int titleId = metadata.getTitleId(id);
+            int score = policy.score(metadata.getRegionMask(id), metadata.getRevision(id), flags);
+            candidates[id] = true;
+            scores[id] = score;
+            if (best[titleId] < 0 || score > bestScores[titleId]) {
+                best[titleId] = id;
+                bestScores[titleId] = score;
+            }
         }
 
-        return base + href;
-    }
-
-    // Simple fuzzy matching implementation (similar to FuzzyWuzzy's partial_ratio)
-    private int calculateSimilarity(String s1, String s2) {
-        // A basic implementation of partial string similarity
-        if (s1.isEmpty() || s2.isEmpty()) {
-            return 0;
+        // Best revision of every disc of each chosen release. A disc is a revision group,
+        // a single-disc release has just the one
+        int[] bestOfDisc = new int[metadata.getRevisionGroupCount()];
+        Arrays.fill(bestOfDisc, -1);
+        int games = 0;
+        for (int id = 0; id < metadata.size(); id++) {
+            if (!candidates[id]) {
+                continue;
+            }
+            int chosen = best[metadata.getTitleId(id)];
+            if (metadata.getReleaseId(id) != metadata.getReleaseId(chosen)) {
+                continue;
+            }
+            if (id == chosen) {
+                games++;
+            }
+            int disc = metadata.getRevisionGroupId(id);
+            if (bestOfDisc[disc] < 0 || scores[id] > scores[bestOfDisc[disc]]) {
+                bestOfDisc[disc] = id;
+            }
         }
 
-        String shorter = s1.length() < s2.length() ? s1 : s2;
-        String longer = s1.length() >= s2.length() ? s1 : s2;
-
-        int maxScore = 0;
-
-        // Slide the shorter string across the longer one
-        for (int i = 0; i <= longer.length() - shorter.length(); i++) {
-            String substring = longer.substring(i, i + shorter.length());
-            int commonChars = countCommonChars(shorter, substring);
-            int score = (commonChars * 100) / shorter.length();
-            maxScore = Math.max(maxScore, score);
+        List<RomFile> roms = new ArrayList<>();
+        for (int id = 0; id < metadata.size(); id++) {
+            if (candidates[id] && bestOfDisc[metadata.getRevisionGroupId(id)] == id) {
+                roms.add(catalog.getRomFile(id, loaded.getPlatformId(), RomFile.EXACT_MATCH_SCORE));
+            }
         }
+        return new FullSet(roms, games, excluded);
+    }
 
-        return maxScore;
+    public int getRomFilesCount() {
+        return activeCatalog.size();
+    }
+
+    private void setLoading(boolean loading) {
+        Platform.runLater(() -> this.loading.set(loading));
     }
 
-    private int countCommonChars(String s1, String s2) {
-        int count = 0;
-        for (int i = 0; i < s1.length(); i++) {
-            if (i < s2.length() && s1.charAt(i) == s2.charAt(i)) {
-                count++;
+    private boolean containsFilteredTerms(String name) {
+        for (String term : filterTerms) {
+            if (name.contains(term)) {
+                return true;
             }
         }
-        return count;
+        return false;
     }
 }
\ No newline at end of file
@@ -0,0 +1,503 @@
+package com.emu.toolkit.service;
+
+import com.emu.toolkit.util.Checksums;
+import com.emu.toolkit.util.HostLimiter;
+import com.emu.toolkit.util.TokenBucket;
+import lombok.Getter;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+
+/**
+ * Fetches one large file over several connections at once. The remaining byte range is
+ * split into segments that are downloaded concurrently with HTTP Range requests and written
+ * in place into a preallocated file through positional {@link FileChannel} writes.
+ * A connection that finishes its segment takes over half of the largest remaining one,
+ * so slow connections end up with less work instead of holding up the whole file.
+ * Every segment keeps a CRC32 of what it wrote, combined in file order they give the CRC32
+ * of the written prefix without reading the file back.
+ * If the server answers a range request with the whole file, that connection takes over
+ * alone and fills in whatever is still missing in file order.
+ */
+public class SegmentedDownload {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // A segment is only split when both halves are at least this large
+    private static final long MIN_SPLIT_BYTES = 2L * 1024 * 1024;
+
+    private final String url;
+    private final File file;
+    private final long length;
+    private final HostLimiter hostLimiter;
+    private final ExecutorService executor;
+    private final TokenBucket[] throttles;
+
+    // Guarded by this, each segment's fields are guarded by the segment itself
+    private final List<Segment> segments = new ArrayList<>();
+    private final AtomicInteger activeConnections = new AtomicInteger();
+    private final Set<HttpURLConnection> openConnections = ConcurrentHashMap.newKeySet();
+    private FileChannel channel;
+    // Where the first segment starts and the CRC32 of the bytes before it, -1 if unknown
+    private long offset;
+    private long offsetCrc32 = -1;
+    private volatile boolean stopped;
+    private volatile IOException failure;
+    // The worker that fills the file alone after a range request was ignored, guarded by this
+    private volatile Thread sequentialFiller;
+
+    /**
+     * Receives the aggregated state of all segments while the download runs
+     */
+    public interface ProgressListener {
+        void onProgress(long bytesDone, int connections);
+    }
+
+    /**
+     * The completely written start of the file
+     */
+    @Getter
+    public static class Prefix {
+        private final long length;
+        // -1 if unknown
+        private final long crc32;
+
+        private Prefix(long length, long crc32) {
+            this.length = length;
+            this.crc32 = crc32;
+        }
+    }
+
+    /**
+     * A byte range [start, end) of the file and how far it has been written
+     */
+    private static class Segment {
+        private final long start;
+        private long position;
+        private long end;
+        // Of the bytes from start to position
+        private final CRC32 crc32 = new CRC32();
+
+        private Segment(long start, long end) {
+            this.start = start;
+            this.position = start;
+            this.end = end;
+        }
+    }
+
+    /**
+     * @param hostLimiter limits the extra connections opened against the file's host
+     * @param executor runs the per-connection workers
+     * @param throttles bandwidth limits every connection of the download draws from
+     */
+    public SegmentedDownload(String url, File file, long length, HostLimiter hostLimiter, ExecutorService executor,
+                             TokenBucket... throttles) {
+        this.url = url;
+        this.file = file;
+        this.length = length;
+        this.hostLimiter = hostLimiter;
+        this.executor = executor;
+        this.throttles = throttles;
+    }
+
+    /**
+     * Download everything from the offset to the end of the file. The primary connection
+     * is an already open response that streams from the offset, it becomes the first segment.
+     * Up to maxConnections - 1 extra connections are opened if the host limiter allows.
+     * Blocks until the file is complete, fails, or the calling thread is interrupted.
+     *
+     * @param offsetCrc32 CRC32 of the bytes before the offset, -1 if unknown
+     */
+    public void run(HttpURLConnection primary, long offset, long offsetCrc32, int maxConnections,
+                    ProgressListener listener, long progressIntervalMs) throws IOException, InterruptedException {
+        synchronized (this) {
+            this.offset = offset;
+            this.offsetCrc32 = offset == 0 ? 0 : offsetCrc32;
+        }
+
+        String host = HostLimiter.hostOf(url);
+        int extraConnections = 0;
+        while (extraConnections < maxConnections - 1 && hostLimiter.tryAcquire(host)) {
+            extraConnections++;
+        }
+
+        // Split the remaining range evenly between the connections we got
+        int connections = extraConnections + 1;
+        long segmentSize = (length - offset) / connections;
+        for (int i = 0; i < connections; i++) {
+            long start = offset + i * segmentSize;
+            long end = i == connections - 1 ? length : start + segmentSize;
+            segments.add(new Segment(start, end));
+        }
+
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            // Preallocate so every segment can write at its own offset right away
+            randomAccessFile.setLength(length);
+            channel = randomAccessFile.getChannel();
+
+            CountDownLatch workersDone = new CountDownLatch(connections);
+            int submitted = 0;
+            try {
+                Segment first = segments.get(0);
+                executor.submit(() -> work(first, primary, false, workersDone));
+                submitted++;
+                for (int i = 1; i < connections; i++) {
+                    Segment segment = segments.get(i);
+                    executor.submit(() -> work(segment, null, true, workersDone));
+                    submitted++;
+                }
+            } catch (RejectedExecutionException e) {
+                // The executor is shutting down, stop the workers that did start and account
+                // for the ones that never will
+                failure = new IOException("Segment worker rejected", e);
+                stop();
+                if (submitted == 0) {
+                    primary.disconnect();
+                }
+                for (int i = submitted; i < connections; i++) {
+                    if (i > 0) {
+                        hostLimiter.release(host);
+                    }
+                    workersDone.countDown();
+                }
+            }
+
+            try {
+                // Workers still blocked in a read are not waited for after a stop, they
+                // can't write anymore and exit once their read returns
+                while (!workersDone.await(progressIntervalMs, TimeUnit.MILLISECONDS) && !stopped) {
+                    listener.onProgress(getBytesDone(offset), activeConnections.get());
+                }
+            } catch (InterruptedException e) {
+                stop();
+                throw e;
+            }
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+        if (getContiguousPrefix().getLength() < length) {
+            throw new IOException("Segmented download ended incomplete");
+        }
+        listener.onProgress(length, 0);
+    }
+
+    /**
+     * The prefix of the file that is completely written, this is what can be resumed safely
+     * after a failure. Its CRC32 is combined from the segments, which cover the file without
+     * gaps.
+     */
+    public synchronized Prefix getContiguousPrefix() {
+        List<Segment> ordered = new ArrayList<>(segments);
+        ordered.sort(Comparator.comparingLong(segment -> segment.start));
+        long crc32 = offsetCrc32;
+        for (Segment segment : ordered) {
+            synchronized (segment) {
+                if (crc32 >= 0) {
+                    crc32 = Checksums.combineCrc32(crc32, segment.crc32.getValue(), segment.position - segment.start);
+                }
+                if (segment.position < segment.end) {
+                    return new Prefix(segment.position, crc32);
+                }
+            }
+        }
+        return new Prefix(ordered.isEmpty() ? offset : length, crc32);
+    }
+
+    private synchronized long getBytesDone(long offset) {
+        long done = offset;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                done += segment.position - segment.start;
+            }
+        }
+        return done;
+    }
+
+    private void work(Segment segment, HttpURLConnection connection, boolean holdsHostSlot, CountDownLatch done) {
+        activeConnections.incrementAndGet();
+        try {
+            while (segment != null && !stopped) {
+                if (connection == null) {
+                    connection = openRange(segment);
+                    if (connection.getResponseCode() == HttpURLConnection.HTTP_OK) {
+                        // The range was ignored and the whole file is coming, retrying would
+                        // get the same answer. The first worker this happens to finishes alone.
+                        if (takeOverSequentially()) {
+                            fillSequentially(connection);
+                        }
+                        return;
+                    }
+                }
+                openConnections.add(connection);
+                try (InputStream in = connection.getInputStream()) {
+                    transfer(segment, in);
+                } finally {
+                    // The response may still have bytes past a shrunk segment, drop the connection
+                    openConnections.remove(connection);
+                    connection.disconnect();
+                    connection = null;
+                }
+                segment = split();
+            }
+        } catch (IOException e) {
+            // Errors after a stop are just the sockets being closed
+            if (!stopped && !isReplacedBySequentialFiller()) {
+                e.printStackTrace();
+                failure = e;
+                stop();
+            }
+        } finally {
+            if (connection != null) {
+                openConnections.remove(connection);
+                connection.disconnect();
+            }
+            if (holdsHostSlot) {
+                hostLimiter.release(HostLimiter.hostOf(url));
+            }
+            activeConnections.decrementAndGet();
+            done.countDown();
+        }
+    }
+
+    /**
+     * Ask for the rest of a segment, the answer is either that range (206) or the whole
+     * file (200)
+     */
+    private HttpURLConnection openRange(Segment segment) throws IOException {
+        long from;
+        long to;
+        synchronized (segment) {
+            from = segment.position;
+            to = segment.end - 1;
+        }
+
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setConnectTimeout(15000);
+        connection.setReadTimeout(30000);
+        connection.setRequestProperty("Range", "bytes=" + from + "-" + to);
+
+        // Registered before waiting for the answer, so a stop can cut a stalled request short
+        openConnections.add(connection);
+        try {
+            if (stopped) {
+                throw new IOException("Download stopped");
+            }
+            int status = connection.getResponseCode();
+            if (status != HttpURLConnection.HTTP_PARTIAL && status != HttpURLConnection.HTTP_OK) {
+                throw new IOException("Range request failed (HTTP " + status + ")");
+            }
+            return connection;
+        } catch (IOException e) {
+            openConnections.remove(connection);
+            connection.disconnect();
+            throw e;
+        }
+    }
+
+    /**
+     * Make the calling worker the only one that writes from now on. Returns false if another
+     * worker already took over.
+     */
+    private synchronized boolean takeOverSequentially() {
+        if (sequentialFiller != null) {
+            return false;
+        }
+        sequentialFiller = Thread.currentThread();
+        return true;
+    }
+
+    private boolean isReplacedBySequentialFiller() {
+        Thread filler = sequentialFiller;
+        return filler != null && filler != Thread.currentThread();
+    }
+
+    /**
+     * Fill every segment from a response carrying the whole file, skipping what is already
+     * written. The other workers stop writing and their connections are dropped.
+     */
+    private void fillSequentially(HttpURLConnection connection) throws IOException {
+        openConnections.add(connection);
+        for (HttpURLConnection other : openConnections) {
+            if (other != connection) {
+                disconnectInBackground(other);
+            }
+        }
+
+        // No segment is split anymore, so the list and the segment ends are final
+        List<Segment> ordered;
+        synchronized (this) {
+            ordered = new ArrayList<>(segments);
+        }
+        ordered.sort(Comparator.comparingLong(segment -> segment.start));
+
+        try (InputStream in = connection.getInputStream()) {
+            long streamPosition = 0;
+            for (Segment segment : ordered) {
+                long from;
+                synchronized (segment) {
+                    from = segment.position;
+                }
+                discard(in, from - streamPosition);
+                transfer(segment, in);
+                if (stopped) {
+                    return;
+                }
+                synchronized (segment) {
+                    streamPosition = segment.end;
+                }
+            }
+        } finally {
+            openConnections.remove(connection);
+        }
+    }
+
+    /**
+     * Read past bytes that are already written
+     */
+    private void discard(InputStream in, long count) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        while (count > 0 && !stopped) {
+            int bytesRead = in.read(buffer, 0, (int) Math.min(buffer.length, count));
+            if (bytesRead == -1) {
+                throw new IOException("Connection closed before the segment was complete");
+            }
+            throttle(bytesRead);
+            count -= bytesRead;
+        }
+    }
+
+    /**
+     * Copy a response into the segment's part of the file until the segment is full. The end
+     * may move down concurrently when another connection takes over part of the segment.
+     * Never reads past the segment's end, so a response carrying more than the segment can
+     * continue with the next one.
+     */
+    private void transfer(Segment segment, InputStream in) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        while (!stopped) {
+            int limit;
+            synchronized (segment) {
+                limit = (int) Math.min(buffer.length, segment.end - segment.position);
+            }
+            if (limit <= 0 || isReplacedBySequentialFiller()) {
+                return;
+            }
+
+            int bytesRead = in.read(buffer, 0, limit);
+            if (bytesRead == -1) {
+                break;
+            }
+            throttle(bytesRead);
+
+            synchronized (segment) {
+                // Checked under the lock, so neither the filler nor a closed file ever
+                // overlaps a write of ours
+                if (stopped || isReplacedBySequentialFiller()) {
+                    return;
+                }
+                int usable = (int) Math.min(bytesRead, segment.end - segment.position);
+                ByteBuffer data = ByteBuffer.wrap(buffer, 0, usable);
+                while (data.hasRemaining()) {
+                    int from = data.position();
+                    int written = channel.write(data, segment.position);
+                    segment.crc32.update(buffer, from, written);
+                    segment.position += written;
+                }
+                if (segment.position >= segment.end) {
+                    return;
+                }
+            }
+        }
+
+        if (!stopped) {
+            throw new IOException("Connection closed before the segment was complete");
+        }
+    }
+
+    private void throttle(int bytes) throws InterruptedIOException {
+        try {
+            for (TokenBucket throttle : throttles) {
+                throttle.acquire(bytes);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while throttled");
+        }
+    }
+
+    /**
+     * Take over the back half of the segment with the most bytes left, null if no segment
+     * is worth splitting anymore
+     */
+    private synchronized Segment split() {
+        if (sequentialFiller != null) {
+            return null;
+        }
+
+        Segment largest = null;
+        long largestRemaining = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                long remaining = segment.end - segment.position;
+                if (remaining > largestRemaining) {
+                    largest = segment;
+                    largestRemaining = remaining;
+                }
+            }
+        }
+
+        if (largest == null) {
+            return null;
+        }
+
+        synchronized (largest) {
+            long remaining = largest.end - largest.position;
+            if (remaining < 2 * MIN_SPLIT_BYTES) {
+                return null;
+            }
+            long middle = largest.position + remaining / 2;
+            Segment stolen = new Segment(middle, largest.end);
+            largest.end = middle;
+            segments.add(stolen);
+            return stolen;
+        }
+    }
+
+    /**
+     * Stop all workers and drop their connections
+     */
+    private void stop() {
+        stopped = true;
+        for (HttpURLConnection connection : openConnections) {
+            disconnectInBackground(connection);
+        }
+    }
+
+    /**
+     * disconnect() waits for a read in progress on the same connection to return, so it must
+     * not hold up the thread that stops the download
+     */
+    private static void disconnectInBackground(HttpURLConnection connection) {
+        Thread thread = new Thread(connection::disconnect, "segment-disconnect");
+        thread.setDaemon(true);
+        thread.start();
+    }
+}
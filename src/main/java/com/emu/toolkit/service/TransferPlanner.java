@@ -0,0 +1,255 @@
+package com.emu.toolkit.service;
+
+import com.emu.toolkit.model.RomFile;
+import com.emu.toolkit.util.HostLimiter;
+import lombok.Getter;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.DoubleConsumer;
+
+/**
+ * Dry run of a batch: probes the size of every file and sums up what downloading them
+ * would take, without queueing anything. Probes are HEAD requests on a small pool, each
+ * thread reuses its keep-alive connections and no host gets more than a few at a time.
+ */
+public class TransferPlanner {
+    private static final int PROBE_THREADS = 8;
+    private static final int PROBE_CONNECTIONS_PER_HOST = 4;
+    private static final int PROBE_TIMEOUT_MS = 15000;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(PROBE_THREADS, runnable -> {
+        Thread thread = new Thread(runnable, "size-probe");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final HostLimiter hostLimiter = new HostLimiter(PROBE_CONNECTIONS_PER_HOST);
+
+    /**
+     * Files and bytes a plan would fetch from one host
+     */
+    @Getter
+    public static class HostTotal {
+        private int files;
+        private int unknownSizes;
+        private long bytes;
+    }
+
+    /**
+     * Outcome of a dry run. The ROMs still have to be queued by the caller.
+     */
+    @Getter
+    public static class Plan {
+        // ROMs to download, in batch order
+        private final List<RomFile> roms;
+        private final String downloadFolder;
+        private final long totalBytes;
+        private final int unknownSizes;
+        private final int alreadyPresent;
+        // Sorted by bytes, largest first
+        private final Map<String, HostTotal> hosts;
+
+        private Plan(List<RomFile> roms, String downloadFolder, long totalBytes, int unknownSizes,
+                     int alreadyPresent, Map<String, HostTotal> hosts) {
+            this.roms = roms;
+            this.downloadFolder = downloadFolder;
+            this.totalBytes = totalBytes;
+            this.unknownSizes = unknownSizes;
+            this.alreadyPresent = alreadyPresent;
+            this.hosts = hosts;
+        }
+
+        /**
+         * Usable space left in the download folder right now
+         */
+        public long getFreeSpace() {
+            return new File(downloadFolder).getUsableSpace();
+        }
+
+        public boolean hasEnoughSpace() {
+            return getFreeSpace() >= totalBytes;
+        }
+
+        /**
+         * Human readable report of the plan
+         *
+         * @param bytesPerSecond expected download speed, 0 if unknown
+         */
+        public List<String> summarize(double bytesPerSecond) {
+            List<String> lines = new ArrayList<>();
+            lines.add("Dry run: " + roms.size() + (roms.size() == 1 ? " file" : " files") + " to download, "
+                    + DownloadService.formatFileSize(totalBytes) + " in total"
+                    + (unknownSizes > 0 ? " (" + unknownSizes + " of unknown size not included)" : ""));
+            if (alreadyPresent > 0) {
+                lines.add("  Already in the download folder: " + alreadyPresent);
+            }
+
+            for (Map.Entry<String, HostTotal> host : hosts.entrySet()) {
+                HostTotal total = host.getValue();
+                lines.add("  " + host.getKey() + ": " + DownloadService.formatFileSize(total.bytes) + " in "
+                        + total.files + (total.files == 1 ? " file" : " files")
+                        + (total.unknownSizes > 0 ? ", " + total.unknownSizes + " of unknown size" : ""));
+            }
+
+            if (bytesPerSecond > 0) {
+                lines.add("  Estimated time: " + formatDuration((long) (totalBytes / bytesPerSecond)) + " at "
+                        + DownloadService.formatFileSize(bytesPerSecond) + "/s");
+            } else {
+                lines.add("  Estimated time: unknown until a download speed has been measured");
+            }
+
+            long freeSpace = getFreeSpace();
+            lines.add("  Free space in download folder: " + DownloadService.formatFileSize(freeSpace));
+            if (freeSpace < totalBytes) {
+                lines.add("  ! Not enough free space, " + DownloadService.formatFileSize(totalBytes - freeSpace)
+                        + " more needed");
+            }
+            return lines;
+        }
+    }
+
+    /**
+     * Probe the sizes of the ROMs not yet in the download folder, blocking until all are known
+     *
+     * @param progress receives the fraction of probes finished
+     */
+    public Plan plan(List<RomFile> roms, String downloadFolder, DoubleConsumer progress) throws InterruptedException {
+        List<RomFile> toDownload = new ArrayList<>();
+        int alreadyPresent = 0;
+        for (RomFile rom : roms) {
+            File destFile = new File(downloadFolder, rom.getName());
+            if (destFile.exists() && destFile.length() > 0) {
+                alreadyPresent++;
+            } else {
+                toDownload.add(rom);
+            }
+        }
+
+        AtomicInteger probed = new AtomicInteger();
+        List<Future<Long>> sizes = new ArrayList<>(toDownload.size());
+        for (RomFile rom : toDownload) {
+            sizes.add(executor.submit(() -> {
+                long size = probeSize(rom.getUrl());
+                progress.accept(probed.incrementAndGet() / (double) toDownload.size());
+                return size;
+            }));
+        }
+
+        long totalBytes = 0;
+        int unknownSizes = 0;
+        Map<String, HostTotal> hosts = new LinkedHashMap<>();
+        try {
+            for (int i = 0; i < toDownload.size(); i++) {
+                long size = sizes.get(i).get();
+                HostTotal host = hosts.computeIfAbsent(HostLimiter.hostOf(toDownload.get(i).getUrl()),
+                        key -> new HostTotal());
+                host.files++;
+                if (size < 0) {
+                    host.unknownSizes++;
+                    unknownSizes++;
+                } else {
+                    host.bytes += size;
+                    totalBytes += size;
+                }
+            }
+        } catch (ExecutionException e) {
+            // Probes report failures as unknown sizes, so this is a bug
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            sizes.forEach(size -> size.cancel(true));
+        }
+
+        Map<String, HostTotal> sortedHosts = new LinkedHashMap<>();
+        hosts.entrySet().stream()
+                .sorted(Comparator.comparingLong((Map.Entry<String, HostTotal> host) -> host.getValue().bytes).reversed())
+                .forEach(host -> sortedHosts.put(host.getKey(), host.getValue()));
+
+        return new Plan(toDownload, downloadFolder, totalBytes, unknownSizes, alreadyPresent, sortedHosts);
+    }
+
+    /**
+     * Size of the file behind a URL, -1 if the server doesn't say. Servers that refuse HEAD
+     * are asked for the first byte instead, the total is then taken from Content-Range.
+     */
+    private long probeSize(String url) throws InterruptedException {
+        String host = HostLimiter.hostOf(url);
+        hostLimiter.acquire(host);
+        try {
+            HttpURLConnection connection = open(url, "HEAD");
+            long size = connection.getResponseCode() == HttpURLConnection.HTTP_OK
+                    ? connection.getContentLengthLong() : -1;
+            if (size >= 0) {
+                return size;
+            }
+            // Don't leave the unusable HEAD response holding a socket
+            connection.disconnect();
+
+            connection = open(url, "GET");
+            connection.setRequestProperty("Range", "bytes=0-0");
+            int responseCode = connection.getResponseCode();
+            if (responseCode == HttpURLConnection.HTTP_PARTIAL) {
+                // Read the single byte so the connection can be reused
+                try (InputStream in = connection.getInputStream()) {
+                    in.readAllBytes();
+                }
+                return contentRangeTotal(connection.getHeaderField("Content-Range"));
+            }
+            // The server ignored the range, don't download the whole file
+            size = responseCode == HttpURLConnection.HTTP_OK ? connection.getContentLengthLong() : -1;
+            connection.disconnect();
+            return size;
+        } catch (IOException e) {
+            // Unreachable files are reported as unknown sizes
+            return -1;
+        } finally {
+            hostLimiter.release(host);
+        }
+    }
+
+    private HttpURLConnection open(String url, String method) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setRequestMethod(method);
+        connection.setConnectTimeout(PROBE_TIMEOUT_MS);
+        connection.setReadTimeout(PROBE_TIMEOUT_MS);
+        return connection;
+    }
+
+    /**
+     * Total length from a "bytes 0-0/12345" header, -1 if missing or unknown
+     */
+    private static long contentRangeTotal(String contentRange) {
+        if (contentRange == null) {
+            return -1;
+        }
+        int slash = contentRange.lastIndexOf('/');
+        try {
+            return slash >= 0 ? Long.parseLong(contentRange.substring(slash + 1).trim()) : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    static String formatDuration(long seconds) {
+        if (seconds < 60) {
+            return seconds + "s";
+        } else if (seconds < 3600) {
+            return String.format("%dm %02ds", seconds / 60, seconds % 60);
+        } else if (seconds < 86400) {
+            return String.format("%dh %02dm", seconds / 3600, seconds % 3600 / 60);
+        }
+        return String.format("%dd %02dh", seconds / 86400, seconds % 86400 / 3600);
+    }
+}
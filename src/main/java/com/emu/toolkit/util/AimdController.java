@@ -0,0 +1,113 @@
+package com.emu.toolkit.util;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Additive-increase / multiplicative-decrease controller for the number of parallel downloads.
+ * While the limit is the bottleneck it is raised one step at a time for as long as each step
+ * buys measurably more aggregate throughput, a step that doesn't pay off is taken back.
+ * Errors halve the limit immediately. The limit always stays within the configured bounds.
+ */
+public class AimdController {
+    // Intervals to wait after a change before its effect on throughput is judged
+    private static final int SETTLE_TICKS = 2;
+    // Intervals to hold after backing off before probing upwards again
+    private static final int PROBE_TICKS = 15;
+    // An increase must raise throughput by at least this factor to be kept
+    private static final double MIN_GAIN = 1.05;
+    // Weight of the newest sample in the smoothed throughput
+    private static final double SMOOTHING = 0.5;
+
+    private final AtomicLong bytesSinceTick = new AtomicLong();
+    private final AtomicInteger errorsSinceTick = new AtomicInteger();
+
+    private int floor;
+    private int ceiling;
+    private int limit;
+    private double smoothedThroughput;
+    private double baselineThroughput;
+    private int lastDirection;
+    private int ticksSinceChange;
+
+    public AimdController(int initialLimit, int floor, int ceiling) {
+        setBounds(floor, ceiling);
+        this.limit = clamp(initialLimit);
+    }
+
+    /**
+     * Count transferred bytes, safe to call from any download thread
+     */
+    public void recordBytes(long bytes) {
+        bytesSinceTick.addAndGet(bytes);
+    }
+
+    /**
+     * Count a failed transfer or a server signalling overload
+     */
+    public void recordError() {
+        errorsSinceTick.incrementAndGet();
+    }
+
+    public synchronized int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Smoothed aggregate throughput in bytes per second as of the last interval
+     */
+    public synchronized double getThroughput() {
+        return smoothedThroughput;
+    }
+
+    /**
+     * Change the range the limit may move in, the current limit is pulled inside it
+     */
+    public synchronized void setBounds(int floor, int ceiling) {
+        this.floor = Math.max(1, floor);
+        this.ceiling = Math.max(this.floor, ceiling);
+        this.limit = clamp(limit);
+    }
+
+    /**
+     * Evaluate the last interval and return the new limit.
+     *
+     * @param intervalMs length of the interval since the previous call
+     * @param saturated whether downloads were waiting for a free slot, the limit is only
+     *                  raised when it is actually holding work back
+     */
+    public synchronized int adjust(long intervalMs, boolean saturated) {
+        double throughput = bytesSinceTick.getAndSet(0) * 1000.0 / Math.max(1, intervalMs);
+        int errors = errorsSinceTick.getAndSet(0);
+        smoothedThroughput = smoothedThroughput == 0
+                ? throughput
+                : SMOOTHING * throughput + (1 - SMOOTHING) * smoothedThroughput;
+        ticksSinceChange++;
+
+        if (errors > 0) {
+            // Multiplicative decrease
+            change(limit - Math.max(1, limit / 2), -1);
+        } else if (saturated && ticksSinceChange >= SETTLE_TICKS) {
+            if (lastDirection > 0 && smoothedThroughput < baselineThroughput * MIN_GAIN) {
+                // The last step didn't help, take it back
+                change(limit - 1, -1);
+            } else if (lastDirection >= 0 || ticksSinceChange >= PROBE_TICKS) {
+                // Additive increase
+                change(limit + 1, 1);
+            }
+        }
+
+        return limit;
+    }
+
+    private void change(int newLimit, int direction) {
+        limit = clamp(newLimit);
+        lastDirection = direction;
+        baselineThroughput = smoothedThroughput;
+        ticksSinceChange = 0;
+    }
+
+    private int clamp(int value) {
+        return Math.max(floor, Math.min(ceiling, value));
+    }
+}
@@ -0,0 +1,176 @@
+package com.emu.toolkit.util;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.CRC32;
+
+/**
+ * Incremental CRC32, MD5 and SHA-1 of a byte stream, fed chunk by chunk as the data goes by
+ * so verifying a file needs no extra pass over it. Only the requested algorithms are computed.
+ * CRC32s of consecutive pieces can be combined, so a CRC32 can also be continued after data
+ * that was hashed earlier or elsewhere. MD5 and SHA-1 can't, they need every byte in order.
+ */
+public class Checksums {
+    private final CRC32 crc32;
+    private final MessageDigest md5;
+    private final MessageDigest sha1;
+    private long length;
+    // CRC32 and length of the data before the first byte fed to crc32
+    private long prefixCrc32;
+    private long prefixLength;
+    // Digests can only be finished once, their results are kept
+    private String md5Hex;
+    private String sha1Hex;
+
+    public Checksums(boolean crc32, boolean md5, boolean sha1) {
+        this.crc32 = crc32 ? new CRC32() : null;
+        this.md5 = md5 ? digest("MD5") : null;
+        this.sha1 = sha1 ? digest("SHA-1") : null;
+    }
+
+    /**
+     * CRC32 only checksums that continue after data of the given length and CRC32, e.g. the
+     * part of a resumed download already on disk
+     */
+    public static Checksums continueFrom(long prefixCrc32, long prefixLength) {
+        Checksums checksums = new Checksums(true, false, false);
+        checksums.prefixCrc32 = prefixCrc32;
+        checksums.prefixLength = prefixLength;
+        checksums.length = prefixLength;
+        return checksums;
+    }
+
+    private static MessageDigest digest(String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to provide MD5 and SHA-1
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public void update(byte[] data, int offset, int count) {
+        if (crc32 != null) {
+            crc32.update(data, offset, count);
+        }
+        if (md5 != null) {
+            md5.update(data, offset, count);
+        }
+        if (sha1 != null) {
+            sha1.update(data, offset, count);
+        }
+        length += count;
+    }
+
+    public long getLength() {
+        return length;
+    }
+
+    /**
+     * CRC32 of everything so far, -1 if not computed
+     */
+    public long getCrc32Value() {
+        if (crc32 == null) {
+            return -1;
+        }
+        return combineCrc32(prefixCrc32, crc32.getValue(), length - prefixLength);
+    }
+
+    /**
+     * Lowercase hex CRC32, null if not computed
+     */
+    public String getCrc32() {
+        return crc32 != null ? String.format("%08x", getCrc32Value()) : null;
+    }
+
+    /**
+     * Lowercase hex MD5, null if not computed. Finishes the digest, feed no more data afterwards.
+     */
+    public String getMd5() {
+        if (md5 != null && md5Hex == null) {
+            md5Hex = hex(md5.digest());
+        }
+        return md5Hex;
+    }
+
+    /**
+     * Lowercase hex SHA-1, null if not computed. Finishes the digest, feed no more data afterwards.
+     */
+    public String getSha1() {
+        if (sha1 != null && sha1Hex == null) {
+            sha1Hex = hex(sha1.digest());
+        }
+        return sha1Hex;
+    }
+
+    /**
+     * CRC32 of two pieces of data back to back from the CRC32s of each piece and the length
+     * of the second one. This is zlib's crc32_combine: appending n zero bytes to a CRC is a
+     * linear operator, applied by squaring the one-zero-bit operator log2(n) times.
+     */
+    public static long combineCrc32(long crc1, long crc2, long length2) {
+        if (length2 <= 0) {
+            return crc1;
+        }
+
+        long[] even = new long[32];
+        long[] odd = new long[32];
+
+        // Operator for one zero bit, the reflected CRC-32 polynomial followed by the shifts
+        odd[0] = 0xEDB88320L;
+        long row = 1;
+        for (int n = 1; n < 32; n++) {
+            odd[n] = row;
+            row <<= 1;
+        }
+        // Two zero bits, then four
+        gf2MatrixSquare(even, odd);
+        gf2MatrixSquare(odd, even);
+
+        // Apply the operator for each set bit of the length, starting with one byte
+        do {
+            gf2MatrixSquare(even, odd);
+            if ((length2 & 1) != 0) {
+                crc1 = gf2MatrixTimes(even, crc1);
+            }
+            length2 >>= 1;
+            if (length2 == 0) {
+                break;
+            }
+            gf2MatrixSquare(odd, even);
+            if ((length2 & 1) != 0) {
+                crc1 = gf2MatrixTimes(odd, crc1);
+            }
+            length2 >>= 1;
+        } while (length2 != 0);
+
+        return (crc1 ^ crc2) & 0xFFFFFFFFL;
+    }
+
+    private static long gf2MatrixTimes(long[] matrix, long vector) {
+        long sum = 0;
+        int i = 0;
+        while (vector != 0) {
+            if ((vector & 1) != 0) {
+                sum ^= matrix[i];
+            }
+            vector >>>= 1;
+            i++;
+        }
+        return sum;
+    }
+
+    private static void gf2MatrixSquare(long[] square, long[] matrix) {
+        for (int n = 0; n < 32; n++) {
+            square[n] = gf2MatrixTimes(matrix, matrix[n]);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder result = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            result.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return result.toString();
+    }
+}
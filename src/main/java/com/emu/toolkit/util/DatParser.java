@@ -0,0 +1,107 @@
+package com.emu.toolkit.util;
+
+import com.emu.toolkit.model.DatIndex;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.Consumer;
+
+/**
+ * Streaming reader for Logiqx-style XML DAT files as published by No-Intro and Redump.
+ * Every {@code <rom>} element is handed to the consumer as it is read, so even DATs with
+ * hundreds of thousands of entries never sit in memory as a document tree.
+ */
+public class DatParser {
+
+    /**
+     * Parse a DAT, calling the consumer for each rom entry
+     */
+    public static void parse(InputStream in, Consumer<DatIndex.Entry> consumer) throws IOException {
+        XMLStreamReader reader = null;
+        try {
+            reader = createReader(in);
+            String gameName = null;
+            while (reader.hasNext()) {
+                if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+                    continue;
+                }
+
+                String element = reader.getLocalName();
+                if (element.equals("game") || element.equals("machine")) {
+                    gameName = reader.getAttributeValue(null, "name");
+                } else if (element.equals("rom")) {
+                    String name = reader.getAttributeValue(null, "name");
+                    if (name != null) {
+                        consumer.accept(new DatIndex.Entry(gameName, name,
+                                parseSize(reader.getAttributeValue(null, "size")),
+                                reader.getAttributeValue(null, "crc"),
+                                reader.getAttributeValue(null, "md5"),
+                                reader.getAttributeValue(null, "sha1")));
+                    }
+                }
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("Invalid DAT file: " + e.getMessage(), e);
+        } finally {
+            close(reader);
+        }
+    }
+
+    /**
+     * Parse a DAT, calling the consumer with the name of each game, i.e. the title without
+     * file extension
+     */
+    public static void parseGameNames(InputStream in, Consumer<String> consumer) throws IOException {
+        XMLStreamReader reader = null;
+        try {
+            reader = createReader(in);
+            while (reader.hasNext()) {
+                if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+                    continue;
+                }
+
+                String element = reader.getLocalName();
+                if (element.equals("game") || element.equals("machine")) {
+                    String name = reader.getAttributeValue(null, "name");
+                    if (name != null && !name.isBlank()) {
+                        consumer.accept(name.trim());
+                    }
+                }
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("Invalid DAT file: " + e.getMessage(), e);
+        } finally {
+            close(reader);
+        }
+    }
+
+    private static XMLStreamReader createReader(InputStream in) throws XMLStreamException {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        // DATs reference the Logiqx DTD by URL, never fetch it
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory.createXMLStreamReader(in);
+    }
+
+    private static void close(XMLStreamReader reader) {
+        if (reader != null) {
+            try {
+                reader.close();
+            } catch (XMLStreamException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private static long parseSize(String size) {
+        try {
+            return size != null ? Long.parseLong(size.trim()) : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.emu.toolkit.util;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Approximate substring matcher based on Myers' bit-parallel edit distance algorithm.
+ * The pattern is compiled once into per-byte bitmasks, after which every catalog name
+ * is scored in a single pass over its UTF-8 bytes without allocating. ASCII letters
+ * are matched case-insensitively.
+ */
+public class FuzzyMatcher {
+    // Patterns are matched within a single machine word
+    public static final int MAX_PATTERN_LENGTH = 64;
+
+    private final int length;
+    private final long lastBit;
+    private final long[] masks = new long[256];
+
+    /**
+     * Compile a pattern. Patterns longer than {@link #MAX_PATTERN_LENGTH} bytes are truncated.
+     */
+    public FuzzyMatcher(String pattern) {
+        byte[] bytes = pattern.getBytes(StandardCharsets.UTF_8);
+        this.length = Math.min(bytes.length, MAX_PATTERN_LENGTH);
+        this.lastBit = length == 0 ? 0 : 1L << (length - 1);
+
+        for (int i = 0; i < length; i++) {
+            byte b = bytes[i];
+            masks[b & 0xFF] |= 1L << i;
+
+            // Register both cases of a letter so the text never has to be folded
+            byte folded = TrigramIndex.fold(b);
+            if (folded != b) {
+                masks[folded & 0xFF] |= 1L << i;
+            } else if (b >= 'a' && b <= 'z') {
+                masks[(b - ('a' - 'A')) & 0xFF] |= 1L << i;
+            }
+        }
+    }
+
+    /**
+     * Smallest number of edits needed to turn the pattern into any substring of text[from, to)
+     */
+    public int distance(byte[] text, int from, int to) {
+        if (length == 0) {
+            return 0;
+        }
+
+        long pv = -1L;
+        long mv = 0L;
+        int score = length;
+        int best = length;
+
+        for (int i = from; i < to; i++) {
+            long eq = masks[text[i] & 0xFF];
+            long xv = eq | mv;
+            long xh = (((eq & pv) + pv) ^ pv) | eq;
+            long ph = mv | ~(xh | pv);
+            long mh = pv & xh;
+
+            if ((ph & lastBit) != 0) {
+                score++;
+            } else if ((mh & lastBit) != 0) {
+                score--;
+            }
+
+            // A match may start anywhere in the text, so nothing is shifted into the first row
+            ph <<= 1;
+            mh <<= 1;
+            pv = mh | ~(xv | ph);
+            mv = ph & xv;
+
+            if (score < best) {
+                best = score;
+                if (best == 0) {
+                    break;
+                }
+            }
+        }
+
+        return best;
+    }
+
+    /**
+     * Similarity between 0 and 100, where 100 means the pattern occurs verbatim in text[from, to)
+     */
+    public int score(byte[] text, int from, int to) {
+        if (length == 0 || to <= from) {
+            return 0;
+        }
+        return (length - distance(text, from, to)) * 100 / length;
+    }
+}
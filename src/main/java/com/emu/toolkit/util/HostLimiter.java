@@ -0,0 +1,71 @@
+package com.emu.toolkit.util;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Caps the number of concurrent connections opened against a single host.
+ * The limit can be changed at runtime, waiting callers are re-evaluated immediately.
+ */
+public class HostLimiter {
+    private final Map<String, Integer> activeConnections = new HashMap<>();
+    private int maxPerHost;
+
+    public HostLimiter(int maxPerHost) {
+        this.maxPerHost = Math.max(1, maxPerHost);
+    }
+
+    /**
+     * Block until a connection slot for the host is available
+     */
+    public synchronized void acquire(String host) throws InterruptedException {
+        while (activeConnections.getOrDefault(host, 0) >= maxPerHost) {
+            wait();
+        }
+        activeConnections.merge(host, 1, Integer::sum);
+    }
+
+    /**
+     * Take a connection slot for the host if one is free right now
+     */
+    public synchronized boolean tryAcquire(String host) {
+        if (activeConnections.getOrDefault(host, 0) >= maxPerHost) {
+            return false;
+        }
+        activeConnections.merge(host, 1, Integer::sum);
+        return true;
+    }
+
+    public synchronized void release(String host) {
+        activeConnections.computeIfPresent(host, (key, count) -> count > 1 ? count - 1 : null);
+        notifyAll();
+    }
+
+    public synchronized int getActive(String host) {
+        return activeConnections.getOrDefault(host, 0);
+    }
+
+    public synchronized int getMaxPerHost() {
+        return maxPerHost;
+    }
+
+    public synchronized void setMaxPerHost(int maxPerHost) {
+        this.maxPerHost = Math.max(1, maxPerHost);
+        notifyAll();
+    }
+
+    /**
+     * Extract the lowercased host name of a URL, or an empty string if it has none
+     */
+    public static String hostOf(String url) {
+        try {
+            // URL is more lenient than URI about unencoded characters in user supplied paths
+            return new URL(url).getHost().toLowerCase(Locale.ROOT);
+        } catch (MalformedURLException e) {
+            return "";
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.emu.toolkit.util;
+
+import org.jsoup.parser.Parser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.function.Consumer;
+
+/**
+ * Streaming extractor for the links of a directory listing page.
+ * The page is tokenized as it is read and every {@code <a href>} value is handed out
+ * as soon as its tag is complete, without ever building a DOM. Memory use is bounded
+ * by the read buffer and the longest single attribute, whatever the page size.
+ */
+public class ListingParser {
+    private static final int BUFFER_SIZE = 16 * 1024;
+    // Longer tag names and attribute values are truncated, they can't be ROM links anyway
+    private static final int MAX_TOKEN_LENGTH = 8192;
+
+    private final Reader reader;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position;
+    private int limit;
+
+    private ListingParser(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Read the whole page and pass every unescaped link target to the consumer, in page order
+     */
+    public static void parse(Reader reader, Consumer<String> hrefConsumer) throws IOException {
+        new ListingParser(reader).run(hrefConsumer);
+    }
+
+    private void run(Consumer<String> hrefConsumer) throws IOException {
+        StringBuilder token = new StringBuilder();
+        int c;
+
+        while ((c = read()) != -1) {
+            if (c != '<') {
+                continue;
+            }
+
+            c = read();
+            if (c == '!') {
+                skipDeclaration();
+                continue;
+            }
+
+            // Tag name
+            token.setLength(0);
+            while (c != -1 && c != '>' && c != '/' && !Character.isWhitespace(c)) {
+                append(token, c);
+                c = read();
+            }
+
+            if (token.length() == 1 && (token.charAt(0) == 'a' || token.charAt(0) == 'A')) {
+                String href = readHrefAttribute(c, token);
+                if (href != null) {
+                    hrefConsumer.accept(Parser.unescapeEntities(href, true));
+                }
+            } else {
+                skipAttributes(c);
+            }
+        }
+    }
+
+    /**
+     * Walk the attributes of an anchor tag up to its closing '>' and return the raw href
+     * value, or null if the tag has none
+     */
+    private String readHrefAttribute(int c, StringBuilder token) throws IOException {
+        String href = null;
+
+        while (c != -1 && c != '>') {
+            if (Character.isWhitespace(c) || c == '/') {
+                c = read();
+                continue;
+            }
+
+            // Attribute name
+            token.setLength(0);
+            while (c != -1 && c != '>' && c != '=' && c != '/' && !Character.isWhitespace(c)) {
+                append(token, c);
+                c = read();
+            }
+            boolean isHref = href == null && token.toString().equalsIgnoreCase("href");
+
+            while (c != -1 && Character.isWhitespace(c)) {
+                c = read();
+            }
+            if (c != '=') {
+                // Attribute without a value
+                if (isHref) {
+                    href = "";
+                }
+                continue;
+            }
+
+            c = read();
+            while (c != -1 && Character.isWhitespace(c)) {
+                c = read();
+            }
+
+            // Attribute value, quoted or bare
+            token.setLength(0);
+            if (c == '"' || c == '\'') {
+                int quote = c;
+                c = read();
+                while (c != -1 && c != quote) {
+                    append(token, c);
+                    c = read();
+                }
+                c = read();
+            } else {
+                while (c != -1 && c != '>' && !Character.isWhitespace(c)) {
+                    append(token, c);
+                    c = read();
+                }
+            }
+
+            if (isHref) {
+                href = token.toString();
+            }
+        }
+
+        return href;
+    }
+
+    /**
+     * Skip the rest of a tag we're not interested in, honouring quoted values
+     */
+    private void skipAttributes(int c) throws IOException {
+        while (c != -1 && c != '>') {
+            if (c == '"' || c == '\'') {
+                int quote = c;
+                do {
+                    c = read();
+                } while (c != -1 && c != quote);
+            }
+            c = read();
+        }
+    }
+
+    /**
+     * Skip a comment ({@code <!-- ... -->}) or a declaration such as the doctype
+     */
+    private void skipDeclaration() throws IOException {
+        int c = read();
+        if (c == '-' && (c = read()) == '-') {
+            int dashes = 0;
+            while ((c = read()) != -1) {
+                if (c == '>' && dashes >= 2) {
+                    return;
+                }
+                dashes = c == '-' ? dashes + 1 : 0;
+            }
+            return;
+        }
+
+        while (c != -1 && c != '>') {
+            c = read();
+        }
+    }
+
+    private void append(StringBuilder token, int c) {
+        if (token.length() < MAX_TOKEN_LENGTH) {
+            token.append((char) c);
+        }
+    }
+
+    private int read() throws IOException {
+        if (position == limit) {
+            limit = reader.read(buffer, 0, buffer.length);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[position++];
+    }
+}
@@ -0,0 +1,166 @@
+package com.emu.toolkit.util;
+
+import lombok.Getter;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Properties;
+
+/**
+ * An unfinished download: the data is written to {@code <destination>.part} and a small
+ * {@code <destination>.part.meta} sidecar records where it came from, how many bytes are
+ * known to be on disk and their CRC32, so the transfer can be resumed after an error or a
+ * restart and still be verified without reading the data back.
+ */
+public class PartFile {
+    public static final String PART_SUFFIX = ".part";
+    private static final String META_SUFFIX = ".meta";
+
+    @Getter private final File destination;
+    @Getter private final File dataFile;
+    private final File metaFile;
+
+    public PartFile(File destination) {
+        this.destination = destination;
+        this.dataFile = new File(destination.getPath() + PART_SUFFIX);
+        this.metaFile = new File(dataFile.getPath() + META_SUFFIX);
+    }
+
+    /**
+     * The resume state recorded for this file, or null if there is nothing usable on disk
+     */
+    public State load() {
+        if (!dataFile.exists() || !metaFile.exists()) {
+            return null;
+        }
+
+        Properties properties = new Properties();
+        try (InputStream in = new FileInputStream(metaFile)) {
+            properties.load(in);
+            long bytesWritten = Long.parseLong(properties.getProperty("bytesWritten", "0"));
+
+            long fileLength = dataFile.length();
+            // Never trust more than is actually in the data file, the CRC32 is only valid
+            // for exactly the recorded length
+            long crc32 = bytesWritten <= fileLength
+                    ? Long.parseLong(properties.getProperty("crc32", "-1"), 16) : -1;
+            bytesWritten = Math.min(bytesWritten, fileLength);
+            return new State(properties.getProperty("url"), properties.getProperty("etag"),
+                    properties.getProperty("lastModified"), bytesWritten, crc32);
+        } catch (IOException | NumberFormatException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Record the resume state. The data is forced to disk first, so after a power loss the
+     * sidecar never vouches for bytes that didn't make it. The sidecar is written to a
+     * temporary file first so a crash can't leave a torn one behind.
+     */
+    public void save(State state) {
+        try (FileChannel channel = FileChannel.open(dataFile.toPath(), StandardOpenOption.WRITE)) {
+            channel.force(false);
+        } catch (IOException e) {
+            // Keep the previous checkpoint rather than one the data may not back
+            e.printStackTrace();
+            return;
+        }
+
+        Properties properties = new Properties();
+        properties.setProperty("url", state.getUrl());
+        if (state.getEtag() != null) {
+            properties.setProperty("etag", state.getEtag());
+        }
+        if (state.getLastModified() != null) {
+            properties.setProperty("lastModified", state.getLastModified());
+        }
+        properties.setProperty("bytesWritten", Long.toString(state.getBytesWritten()));
+        if (state.getCrc32() >= 0) {
+            properties.setProperty("crc32", Long.toHexString(state.getCrc32()));
+        }
+
+        File tempFile = new File(metaFile.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tempFile)) {
+            properties.store(out, "Partial download");
+            out.getFD().sync();
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        move(tempFile, metaFile);
+    }
+
+    /**
+     * Cut the data file back to the given length, dropping bytes the sidecar doesn't vouch for
+     */
+    public void truncate(long length) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(dataFile, "rw")) {
+            file.setLength(length);
+        }
+    }
+
+    /**
+     * Move the finished data into place and remove the sidecar
+     */
+    public boolean complete() {
+        if (!move(dataFile, destination)) {
+            return false;
+        }
+        metaFile.delete();
+        return true;
+    }
+
+    /**
+     * Throw away the partial data and its sidecar
+     */
+    public void delete() {
+        dataFile.delete();
+        metaFile.delete();
+    }
+
+    private static boolean move(File source, File target) {
+        try {
+            try {
+                Files.move(source.toPath(), target.toPath(),
+                        StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            return true;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Where a partial download came from and how far it got
+     */
+    @Getter
+    public static class State {
+        private final String url;
+        private final String etag;
+        private final String lastModified;
+        private final long bytesWritten;
+        // CRC32 of the bytes written, -1 if unknown
+        private final long crc32;
+
+        public State(String url, String etag, String lastModified, long bytesWritten, long crc32) {
+            this.url = url;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.bytesWritten = bytesWritten;
+            this.crc32 = crc32;
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package com.emu.toolkit.util;
+
+import com.emu.toolkit.model.Region;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Parses No-Intro / Redump style file names such as
+ * {@code "Super Metroid (Japan, USA) (En,Ja) (Rev 1).zip"} into structured fields.
+ */
+public class RomNameParser {
+    public static final int FLAG_BETA = 1;
+    public static final int FLAG_PROTO = 1 << 1;
+    public static final int FLAG_DEMO = 1 << 2;
+    public static final int FLAG_SAMPLE = 1 << 3;
+    public static final int FLAG_PIRATE = 1 << 4;
+    public static final int FLAG_UNLICENSED = 1 << 5;
+    /** Dump marked good with [!] */
+    public static final int FLAG_VERIFIED = 1 << 6;
+    /** Dump marked bad with [b] */
+    public static final int FLAG_BAD_DUMP = 1 << 7;
+
+    // Tags that name one part of a multi-part release, e.g. "Disc 2", "Side B", "Disk 1 of 3"
+    private static final Pattern DISC_TAG = Pattern.compile("(?i)(disc|disk|side)\\s*(\\d+|[a-z])(\\s+of\\s+\\d+)?");
+
+    // Bit i of a language mask stands for LANGUAGES[i]
+    private static final String[] LANGUAGES = {
+            "en", "ja", "fr", "de", "es", "it", "nl", "pt", "sv", "no", "da", "fi",
+            "zh", "ko", "pl", "ru", "hu", "cs", "el", "tr", "ar", "ca", "hr", "he"
+    };
+
+    /**
+     * The structured fields of one file name
+     */
+    @Getter
+    public static class ParsedName {
+        /** Lowercased title without any tags, shared by every release of a game */
+        private final String title;
+        /** Name without the revision tag or spaces, shared by every revision of one disc of a release */
+        private final String revisionKey;
+        /** Like the revision key without disc tags, shared by every disc and revision of one release */
+        private final String releaseKey;
+        private final int regionMask;
+        private final int languageMask;
+        private final int revision;
+        private final int flags;
+
+        private ParsedName(String title, String revisionKey, String releaseKey, int regionMask, int languageMask,
+                           int revision, int flags) {
+            this.title = title;
+            this.revisionKey = revisionKey;
+            this.releaseKey = releaseKey;
+            this.regionMask = regionMask;
+            this.languageMask = languageMask;
+            this.revision = revision;
+            this.flags = flags;
+        }
+
+        public boolean hasFlag(int flag) {
+            return (flags & flag) != 0;
+        }
+    }
+
+    public static ParsedName parse(String name) {
+        int titleEnd = name.length();
+        int regionMask = 0;
+        int languageMask = 0;
+        int revision = 0;
+        int flags = 0;
+        StringBuilder revisionKey = new StringBuilder(name.length());
+        StringBuilder releaseKey = new StringBuilder(name.length());
+
+        int i = 0;
+        while (i < name.length()) {
+            char c = name.charAt(i);
+            int close = c == '(' ? name.indexOf(')', i) : c == '[' ? name.indexOf(']', i) : -1;
+            if (close < 0) {
+                if (c != ' ') {
+                    revisionKey.append(c);
+                    releaseKey.append(c);
+                }
+                i++;
+                continue;
+            }
+
+            // The title is everything before the first tag
+            titleEnd = Math.min(titleEnd, i);
+            String tag = name.substring(i + 1, close).trim();
+
+            if (c == '[') {
+                if (tag.equals("!")) {
+                    flags |= FLAG_VERIFIED;
+                } else if (tag.startsWith("b")) {
+                    flags |= FLAG_BAD_DUMP;
+                }
+            } else if (tag.startsWith("Rev ")) {
+                revision = parseRevision(tag.substring(4).trim());
+                // Leave the revision out so all revisions of a release share the key
+                i = close + 1;
+                continue;
+            } else if (DISC_TAG.matcher(tag).matches()) {
+                // Leave the disc out of the release key so all discs of a release share it
+                appendTag(revisionKey, name, i, close);
+                i = close + 1;
+                continue;
+            } else {
+                int regions = parseRegions(tag);
+                if (regions != 0) {
+                    regionMask |= regions;
+                } else {
+                    int languages = parseLanguages(tag);
+                    if (languages != 0) {
+                        languageMask |= languages;
+                    } else {
+                        flags |= parseFlag(tag);
+                    }
+                }
+            }
+
+            appendTag(revisionKey, name, i, close);
+            appendTag(releaseKey, name, i, close);
+            i = close + 1;
+        }
+
+        String title = name.substring(0, titleEnd);
+        if (titleEnd == name.length()) {
+            title = stripExtension(title);
+        }
+
+        return new ParsedName(normalizeTitle(title), revisionKey.toString(), releaseKey.toString(),
+                regionMask, languageMask, revision, flags);
+    }
+
+    private static void appendTag(StringBuilder key, String name, int open, int close) {
+        for (int j = open; j <= close; j++) {
+            if (name.charAt(j) != ' ') {
+                key.append(name.charAt(j));
+            }
+        }
+    }
+
+    /**
+     * Contents of the (...) and [...] tags of a name in order, trimmed
+     */
+    public static List<String> tags(String name) {
+        List<String> tags = new ArrayList<>();
+        int i = 0;
+        while (i < name.length()) {
+            char c = name.charAt(i);
+            int close = c == '(' ? name.indexOf(')', i) : c == '[' ? name.indexOf(']', i) : -1;
+            if (close < 0) {
+                i++;
+                continue;
+            }
+            tags.add(name.substring(i + 1, close).trim());
+            i = close + 1;
+        }
+        return tags;
+    }
+
+    /**
+     * Canonical form of a title for grouping: lowercased with whitespace collapsed
+     */
+    public static String normalizeTitle(String title) {
+        return title.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Language mask for a comma separated list of codes such as "En,Fr", 0 if any code is unknown
+     */
+    public static int parseLanguages(String tag) {
+        int mask = 0;
+        for (String token : tag.split(",")) {
+            // Variants like "Zh-Hant" count as the base language
+            String code = token.trim().toLowerCase(Locale.ROOT);
+            int dash = code.indexOf('-');
+            if (dash > 0) {
+                code = code.substring(0, dash);
+            }
+
+            int bit = -1;
+            for (int l = 0; l < LANGUAGES.length; l++) {
+                if (LANGUAGES[l].equals(code)) {
+                    bit = l;
+                    break;
+                }
+            }
+            if (bit < 0) {
+                return 0;
+            }
+            mask |= 1 << bit;
+        }
+        return mask;
+    }
+
+    /**
+     * Region mask for a tag such as "Japan, USA", 0 if any part isn't a region
+     */
+    private static int parseRegions(String tag) {
+        int mask = 0;
+        for (String token : tag.split(",")) {
+            Region region = Region.fromName(token);
+            if (region == null) {
+                return 0;
+            }
+            mask |= region.bit();
+        }
+        return mask;
+    }
+
+    private static int parseFlag(String tag) {
+        String lower = tag.toLowerCase(Locale.ROOT);
+        if (lower.startsWith("beta")) {
+            return FLAG_BETA;
+        } else if (lower.startsWith("proto")) {
+            return FLAG_PROTO;
+        } else if (lower.startsWith("demo")) {
+            return FLAG_DEMO;
+        } else if (lower.startsWith("sample")) {
+            return FLAG_SAMPLE;
+        } else if (lower.equals("pirate")) {
+            return FLAG_PIRATE;
+        } else if (lower.equals("unl")) {
+            return FLAG_UNLICENSED;
+        }
+        return 0;
+    }
+
+    /**
+     * Revisions are numbered ("Rev 2") or lettered ("Rev B"), letters count from 1
+     */
+    private static int parseRevision(String value) {
+        if (value.isEmpty()) {
+            return 0;
+        }
+
+        int digits = 0;
+        while (digits < value.length() && Character.isDigit(value.charAt(digits))) {
+            digits++;
+        }
+        if (digits > 0) {
+            try {
+                return Integer.parseInt(value.substring(0, Math.min(digits, 9)));
+            } catch (NumberFormatException e) {
+                return 0;
+            }
+        }
+
+        char letter = Character.toUpperCase(value.charAt(0));
+        return letter >= 'A' && letter <= 'Z' ? letter - 'A' + 1 : 0;
+    }
+
+    private static String stripExtension(String name) {
+        int dot = name.lastIndexOf('.');
+        if (dot > 0 && name.length() - dot <= 5) {
+            return name.substring(0, dot);
+        }
+        return name;
+    }
+}
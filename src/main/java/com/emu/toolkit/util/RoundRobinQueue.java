@@ -0,0 +1,97 @@
+package com.emu.toolkit.util;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * A queue made of one FIFO sub-queue per key, served round-robin so that no key can
+ * starve the others however many items it has queued. Keys whose sub-queue runs empty
+ * drop out of the rotation. All methods are thread safe.
+ *
+ * @param <K> the key items are grouped by, e.g. a host name
+ * @param <T> the queued items
+ */
+public class RoundRobinQueue<K, T> {
+    private final Map<K, Deque<T>> queues = new HashMap<>();
+    // Keys in the order they will be served next
+    private final Deque<K> rotation = new ArrayDeque<>();
+    private int size;
+
+    public synchronized void add(K key, T item) {
+        Deque<T> queue = queues.get(key);
+        if (queue == null) {
+            queue = new ArrayDeque<>();
+            queues.put(key, queue);
+            rotation.addLast(key);
+        }
+        queue.addLast(item);
+        size++;
+    }
+
+    /**
+     * Take the head item of the first key in rotation order that the filter accepts.
+     * That key then moves to the back of the rotation. Returns null if no key is accepted.
+     */
+    public synchronized T poll(Predicate<K> keyFilter) {
+        int keys = rotation.size();
+        for (int i = 0; i < keys; i++) {
+            K key = rotation.pollFirst();
+            if (!keyFilter.test(key)) {
+                rotation.addLast(key);
+                continue;
+            }
+
+            Deque<T> queue = queues.get(key);
+            T item = queue.pollFirst();
+            size--;
+            if (queue.isEmpty()) {
+                queues.remove(key);
+            } else {
+                rotation.addLast(key);
+            }
+            return item;
+        }
+        return null;
+    }
+
+    /**
+     * Check whether any queued item belongs to a key the filter accepts, without taking it
+     */
+    public synchronized boolean hasAny(Predicate<K> keyFilter) {
+        for (K key : rotation) {
+            if (keyFilter.test(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public synchronized boolean remove(T item) {
+        Iterator<K> keys = rotation.iterator();
+        while (keys.hasNext()) {
+            K key = keys.next();
+            Deque<T> queue = queues.get(key);
+            if (queue.remove(item)) {
+                size--;
+                if (queue.isEmpty()) {
+                    queues.remove(key);
+                    keys.remove();
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public synchronized boolean isEmpty() {
+        return size == 0;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+}
@@ -0,0 +1,197 @@
+package com.emu.toolkit.util;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+
+/**
+ * Reads game titles from a want-list file one at a time, without loading the file into memory.
+ * The format is picked by extension:
+ * <ul>
+ *   <li>.dat / .xml: game names of a No-Intro or Redump DAT, read as streaming XML</li>
+ *   <li>.csv: the first column, a header row named title or name is skipped</li>
+ *   <li>.m3u / .m3u8: the file names of the entries without path and extension</li>
+ *   <li>.lpl: the labels of a RetroArch playlist</li>
+ *   <li>anything else: one title per line, lines starting with # are comments</li>
+ * </ul>
+ */
+public class TitleListReader {
+
+    /**
+     * Feed every title of the file to the consumer in file order
+     *
+     * @param progress receives the fraction of the file read so far
+     */
+    public static void read(File file, Consumer<String> titles, DoubleConsumer progress) throws IOException {
+        String name = file.getName().toLowerCase(Locale.ROOT);
+        long length = Math.max(1, file.length());
+
+        try (CountingInputStream in = new CountingInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            Consumer<String> reporting = title -> {
+                titles.accept(title);
+                progress.accept(Math.min(1.0, (double) in.count / length));
+            };
+
+            if (name.endsWith(".dat") || name.endsWith(".xml")) {
+                DatParser.parseGameNames(in, reporting);
+            } else if (name.endsWith(".lpl")) {
+                readPlaylistLabels(in, reporting);
+            } else {
+                BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+                if (name.endsWith(".csv")) {
+                    readCsv(reader, reporting);
+                } else if (name.endsWith(".m3u") || name.endsWith(".m3u8")) {
+                    readM3u(reader, reporting);
+                } else {
+                    readLines(reader, reporting);
+                }
+            }
+        }
+        progress.accept(1.0);
+    }
+
+    private static void readLines(BufferedReader reader, Consumer<String> titles) throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            line = stripBom(line).trim();
+            if (!line.isEmpty() && !line.startsWith("#")) {
+                titles.accept(line);
+            }
+        }
+    }
+
+    private static void readCsv(BufferedReader reader, Consumer<String> titles) throws IOException {
+        String line;
+        boolean first = true;
+        while ((line = reader.readLine()) != null) {
+            String title = firstCsvField(stripBom(line)).trim();
+            if (first) {
+                first = false;
+                if (title.equalsIgnoreCase("title") || title.equalsIgnoreCase("name")) {
+                    continue;
+                }
+            }
+            if (!title.isEmpty()) {
+                titles.accept(title);
+            }
+        }
+    }
+
+    /**
+     * First field of a CSV row, a quoted field may contain commas and doubled quotes
+     */
+    private static String firstCsvField(String line) {
+        if (!line.startsWith("\"")) {
+            int comma = line.indexOf(',');
+            return comma >= 0 ? line.substring(0, comma) : line;
+        }
+
+        StringBuilder field = new StringBuilder();
+        for (int i = 1; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    break;
+                }
+            } else {
+                field.append(c);
+            }
+        }
+        return field.toString();
+    }
+
+    private static void readM3u(BufferedReader reader, Consumer<String> titles) throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            line = stripBom(line).trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+
+            // Keep only the file name, without folders and extension
+            String entry = line.substring(Math.max(line.lastIndexOf('/'), line.lastIndexOf('\\')) + 1);
+            int dot = entry.lastIndexOf('.');
+            if (dot > 0) {
+                entry = entry.substring(0, dot);
+            }
+            if (!entry.isEmpty()) {
+                titles.accept(entry);
+            }
+        }
+    }
+
+    /**
+     * RetroArch playlists are JSON with an "items" array whose entries carry a "label"
+     */
+    private static void readPlaylistLabels(InputStream in, Consumer<String> titles) throws IOException {
+        try (JsonParser parser = new JsonFactory().createParser(in)) {
+            JsonToken token;
+            while ((token = parser.nextToken()) != null) {
+                if (token == JsonToken.FIELD_NAME && "label".equals(parser.getCurrentName())) {
+                    if (parser.nextToken() == JsonToken.VALUE_STRING) {
+                        String label = parser.getText().trim();
+                        if (!label.isEmpty()) {
+                            titles.accept(label);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static String stripBom(String line) {
+        return !line.isEmpty() && line.charAt(0) == '\uFEFF' ? line.substring(1) : line;
+    }
+
+    /**
+     * Counts the bytes read through it, for progress reporting
+     */
+    private static class CountingInputStream extends FilterInputStream {
+        long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int bytesRead = super.read(buffer, offset, length);
+            if (bytesRead > 0) {
+                count += bytesRead;
+            }
+            return bytesRead;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+}
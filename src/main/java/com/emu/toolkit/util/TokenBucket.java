@@ -0,0 +1,75 @@
+package com.emu.toolkit.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket rate limiter for byte streams. Tokens refill continuously at the configured
+ * rate and up to one second's worth can be saved up as burst. A caller that takes more than
+ * is available goes into debt and sleeps until the debt is paid off, so the average rate
+ * holds even for chunks larger than the bucket. The rate can be changed at any time and
+ * applies to callers that are already waiting, 0 disables limiting and forgives any debt.
+ */
+public class TokenBucket {
+    // Smallest burst allowed, so very low rates still pass a whole read buffer at once
+    private static final long MIN_CAPACITY = 16 * 1024;
+    // Longest a caller waits before looking at the rate again
+    private static final long WAIT_SLICE_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private long bytesPerSecond;
+    private double tokens;
+    // Tokens earned in total, waiting callers measure their debt against it
+    private double earned;
+    private long lastRefillNanos = System.nanoTime();
+
+    public TokenBucket(long bytesPerSecond) {
+        setRate(bytesPerSecond);
+    }
+
+    public synchronized void setRate(long bytesPerSecond) {
+        refill();
+        this.bytesPerSecond = Math.max(0, bytesPerSecond);
+        if (this.bytesPerSecond == 0) {
+            tokens = Math.max(0, tokens);
+        } else {
+            tokens = Math.min(tokens, capacity());
+        }
+        notifyAll();
+    }
+
+    /**
+     * Take tokens for the given number of bytes, sleeping as long as the rate requires
+     */
+    public synchronized void acquire(int bytes) throws InterruptedException {
+        if (bytesPerSecond <= 0) {
+            return;
+        }
+        refill();
+        tokens -= bytes;
+        if (tokens >= 0) {
+            return;
+        }
+
+        // Paid off once the bucket has earned back the debt this call left it in. Wait in
+        // slices so a rate change, or limiting being turned off, takes effect right away.
+        double paidOffAt = earned - tokens;
+        while (bytesPerSecond > 0 && earned < paidOffAt) {
+            long waitNanos = (long) ((paidOffAt - earned) * TimeUnit.SECONDS.toNanos(1) / bytesPerSecond);
+            TimeUnit.NANOSECONDS.timedWait(this, Math.max(1, Math.min(WAIT_SLICE_NANOS, waitNanos)));
+            refill();
+        }
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        if (bytesPerSecond > 0) {
+            double gained = (now - lastRefillNanos) * (double) bytesPerSecond / TimeUnit.SECONDS.toNanos(1);
+            tokens = Math.min(capacity(), tokens + gained);
+            earned += gained;
+        }
+        lastRefillNanos = now;
+    }
+
+    private double capacity() {
+        return Math.max(MIN_CAPACITY, bytesPerSecond);
+    }
+}
@@ -0,0 +1,220 @@
+package com.emu.toolkit.util;
+
+import com.emu.toolkit.model.RomCatalog;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Inverted trigram index over the names of a {@link RomCatalog}.
+ * Every trigram of the UTF-8 name bytes (ASCII case folded) maps to an ascending
+ * posting list of entry ids, so a substring query only has to verify the ids that
+ * contain all of its trigrams. Postings are stored as one flat array addressed
+ * through a sorted key table.
+ */
+public class TrigramIndex {
+    private static final int[] NO_IDS = new int[0];
+
+    private final RomCatalog catalog;
+    private final int[] keys;
+    private final int[] starts;
+    private final int[] postings;
+
+    private TrigramIndex(RomCatalog catalog, int[] keys, int[] starts, int[] postings) {
+        this.catalog = catalog;
+        this.keys = keys;
+        this.starts = starts;
+        this.postings = postings;
+    }
+
+    /**
+     * Build an index over every name of the catalog
+     */
+    public static TrigramIndex build(RomCatalog catalog) {
+        byte[] names = catalog.getNameBytes();
+        Map<Integer, PostingBuilder> builders = new HashMap<>();
+        int total = 0;
+
+        for (int id = 0; id < catalog.size(); id++) {
+            int end = catalog.nameEnd(id);
+            for (int i = catalog.nameStart(id); i + 3 <= end; i++) {
+                int key = trigramKey(names[i], names[i + 1], names[i + 2]);
+                if (builders.computeIfAbsent(key, k -> new PostingBuilder()).add(id)) {
+                    total++;
+                }
+            }
+        }
+
+        int[] keys = new int[builders.size()];
+        int k = 0;
+        for (Integer key : builders.keySet()) {
+            keys[k++] = key;
+        }
+        Arrays.sort(keys);
+
+        int[] starts = new int[keys.length + 1];
+        int[] postings = new int[total];
+        int offset = 0;
+        for (int i = 0; i < keys.length; i++) {
+            PostingBuilder builder = builders.get(keys[i]);
+            System.arraycopy(builder.ids, 0, postings, offset, builder.size);
+            starts[i] = offset;
+            offset += builder.size;
+        }
+        starts[keys.length] = offset;
+
+        return new TrigramIndex(catalog, keys, starts, postings);
+    }
+
+    public RomCatalog getCatalog() {
+        return catalog;
+    }
+
+    public int size() {
+        return catalog.size();
+    }
+
+    /**
+     * Find the ids of all names containing the query, in ascending order.
+     * Matching ignores case for ASCII letters.
+     */
+    public int[] findContaining(String query) {
+        byte[] pattern = fold(query.getBytes(StandardCharsets.UTF_8));
+
+        // Too short to have a trigram, fall back to scanning the names
+        if (pattern.length < 3) {
+            return scan(pattern);
+        }
+
+        int gramCount = pattern.length - 2;
+        int[] slots = new int[gramCount];
+        for (int i = 0; i < gramCount; i++) {
+            int slot = Arrays.binarySearch(keys, trigramKey(pattern[i], pattern[i + 1], pattern[i + 2]));
+            if (slot < 0) {
+                return NO_IDS;
+            }
+            slots[i] = slot;
+        }
+
+        // Start from the rarest trigram to keep the candidate set small
+        int rarest = 0;
+        for (int i = 1; i < gramCount; i++) {
+            if (postingLength(slots[i]) < postingLength(slots[rarest])) {
+                rarest = i;
+            }
+        }
+
+        int[] candidates = Arrays.copyOfRange(postings, starts[slots[rarest]], starts[slots[rarest] + 1]);
+        int count = candidates.length;
+        for (int i = 0; i < gramCount && count > 0; i++) {
+            if (i != rarest) {
+                count = intersect(candidates, count, slots[i]);
+            }
+        }
+
+        // Trigrams only prove the name might match, verify the remaining candidates
+        int matches = 0;
+        for (int i = 0; i < count; i++) {
+            int id = candidates[i];
+            if (contains(id, pattern)) {
+                candidates[matches++] = id;
+            }
+        }
+
+        return Arrays.copyOf(candidates, matches);
+    }
+
+    /**
+     * Approximate heap footprint of the index in bytes
+     */
+    public long estimatedBytes() {
+        return 4L * (keys.length + starts.length + postings.length) + 64;
+    }
+
+    private int postingLength(int slot) {
+        return starts[slot + 1] - starts[slot];
+    }
+
+    /**
+     * Intersect the first count candidate ids with a posting list in place,
+     * returning the number of ids left
+     */
+    private int intersect(int[] candidates, int count, int slot) {
+        int kept = 0;
+        int j = starts[slot];
+        int end = starts[slot + 1];
+        for (int i = 0; i < count && j < end; i++) {
+            int id = candidates[i];
+            while (j < end && postings[j] < id) {
+                j++;
+            }
+            if (j < end && postings[j] == id) {
+                candidates[kept++] = id;
+            }
+        }
+        return kept;
+    }
+
+    private int[] scan(byte[] pattern) {
+        int[] result = new int[catalog.size()];
+        int matches = 0;
+        for (int id = 0; id < catalog.size(); id++) {
+            if (contains(id, pattern)) {
+                result[matches++] = id;
+            }
+        }
+        return Arrays.copyOf(result, matches);
+    }
+
+    private boolean contains(int id, byte[] pattern) {
+        byte[] names = catalog.getNameBytes();
+        int end = catalog.nameEnd(id);
+        outer:
+        for (int i = catalog.nameStart(id); i + pattern.length <= end; i++) {
+            for (int j = 0; j < pattern.length; j++) {
+                if (fold(names[i + j]) != pattern[j]) {
+                    continue outer;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Lowercase an ASCII letter, leaving every other byte untouched
+     */
+    public static byte fold(byte b) {
+        return b >= 'A' && b <= 'Z' ? (byte) (b + ('a' - 'A')) : b;
+    }
+
+    private static byte[] fold(byte[] bytes) {
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = fold(bytes[i]);
+        }
+        return bytes;
+    }
+
+    private static int trigramKey(byte a, byte b, byte c) {
+        return ((fold(a) & 0xFF) << 16) | ((fold(b) & 0xFF) << 8) | (fold(c) & 0xFF);
+    }
+
+    private static class PostingBuilder {
+        private int[] ids = new int[4];
+        private int size;
+
+        boolean add(int id) {
+            // Ids arrive in ascending order, so a repeated trigram in one name is always the last entry
+            if (size > 0 && ids[size - 1] == id) {
+                return false;
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+            return true;
+        }
+    }
+}
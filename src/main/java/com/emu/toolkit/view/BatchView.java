@@ -5,11 +5,14 @@ import com.emu.toolkit.util.DialogHelper;
 import com.emu.toolkit.viewmodel.BatchViewModel;
 import com.emu.toolkit.viewmodel.ConfigViewModel;
 import javafx.geometry.Insets;
+import javafx.geometry.Pos;
 import javafx.scene.control.*;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.Priority;
 import javafx.scene.layout.VBox;
+import javafx.stage.FileChooser;
 
+import java.io.File;
 import java.util.List;
 
 /**
@@ -42,6 +45,39 @@ public class BatchView {
         processBatchButton.setOnAction(e -> handleProcessBatch());
         processBatchButton.disableProperty().bind(batchViewModel.processingProperty());
 
+        // Import a want-list file instead of typing the titles
+        Button importButton = new Button("Import from File...");
+        importButton.setOnAction(e -> handleImportBatch(importButton));
+        importButton.disableProperty().bind(batchViewModel.processingProperty());
+
+        // One ROM of every game in the current platform's catalog
+        Button fullSetButton = new Button("Build Full Set");
+        fullSetButton.setOnAction(e -> handleBuildFullSet());
+        fullSetButton.disableProperty().bind(batchViewModel.processingProperty());
+        fullSetButton.setTooltip(new Tooltip(
+                "Queue one ROM of every game of the current platform, chosen by the region priority " +
+                        "and exclusions in the settings"));
+
+        // A dry run only reports what the batch would download
+        CheckBox dryRunCheckbox = new CheckBox("Dry run (estimate size and time only)");
+        dryRunCheckbox.selectedProperty().bindBidirectional(batchViewModel.dryRunProperty());
+        dryRunCheckbox.disableProperty().bind(batchViewModel.processingProperty());
+
+        Button queuePlanButton = new Button("Queue Planned Downloads");
+        queuePlanButton.setOnAction(e -> handleQueuePlan());
+        queuePlanButton.visibleProperty().bind(batchViewModel.planReadyProperty());
+        queuePlanButton.managedProperty().bind(batchViewModel.planReadyProperty());
+
+        HBox batchButtonBox = new HBox(10, processBatchButton, importButton, fullSetButton, dryRunCheckbox, queuePlanButton);
+        batchButtonBox.setAlignment(Pos.CENTER_LEFT);
+
+        // Progress through the batch input, shown while processing
+        ProgressBar batchProgressBar = new ProgressBar();
+        batchProgressBar.setMaxWidth(Double.MAX_VALUE);
+        batchProgressBar.progressProperty().bind(batchViewModel.batchProgressProperty());
+        batchProgressBar.visibleProperty().bind(batchViewModel.processingProperty());
+        batchProgressBar.managedProperty().bind(batchViewModel.processingProperty());
+
         // Results header
         Label resultsLabel = new Label("Results:");
 
@@ -76,7 +112,8 @@ public class BatchView {
         content.getChildren().addAll(
                 instructionLabel,
                 batchInput,
-                processBatchButton,
+                batchButtonBox,
+                batchProgressBar,
                 resultsLabel,
                 resultsListView,
                 pendingLabel,
@@ -106,6 +143,46 @@ public class BatchView {
         batchViewModel.processBatch(downloadFolder);
     }
 
+    private void handleImportBatch(Button importButton) {
+        // Validate download folder
+        if (configViewModel.folderIsInvalid()) {
+            showError("Download Folder Required",
+                    "Please select a download folder using the Browse button before proceeding.");
+            return;
+        }
+
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Import Game Titles");
+        fileChooser.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("Title Lists", "*.txt", "*.csv", "*.dat", "*.xml", "*.m3u", "*.m3u8", "*.lpl"),
+                new FileChooser.ExtensionFilter("All Files", "*.*"));
+        File file = fileChooser.showOpenDialog(importButton.getScene().getWindow());
+        if (file == null) {
+            return;
+        }
+
+        String downloadFolder = configViewModel.downloadFolderProperty().get();
+        batchViewModel.importBatch(file, downloadFolder);
+    }
+
+    private void handleBuildFullSet() {
+        // Validate download folder
+        if (configViewModel.folderIsInvalid()) {
+            showError("Download Folder Required",
+                    "Please select a download folder using the Browse button before proceeding.");
+            return;
+        }
+
+        batchViewModel.buildFullSet(configViewModel.downloadFolderProperty().get());
+    }
+
+    private void handleQueuePlan() {
+        if (!batchViewModel.queuePlannedDownloads()) {
+            showError("Not Enough Space",
+                    "The download folder doesn't have enough free space for the planned downloads.");
+        }
+    }
+
     private void handlePendingSelection(String game) {
         if (game == null) return;
 
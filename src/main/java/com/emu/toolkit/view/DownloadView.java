@@ -9,6 +9,7 @@ import javafx.scene.control.*;
 import javafx.scene.control.cell.ProgressBarTableCell;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.Priority;
+import javafx.scene.layout.Region;
 import javafx.scene.layout.VBox;
 
 /**
@@ -106,8 +107,15 @@ public class DownloadView {
                 viewModel.getDownloadTasks()
         ));
 
+        // Current limit of the adaptive download concurrency
+        Region spacer = new Region();
+        HBox.setHgrow(spacer, Priority.ALWAYS);
+        Label concurrencyLabel = new Label();
+        concurrencyLabel.textProperty().bind(Bindings.concat(
+                "Parallel downloads: ", viewModel.concurrencyLimitProperty().asString()));
+
         // Add buttons to buttonBox
-        buttonBox.getChildren().addAll(clearButton, cancelAllButton);
+        buttonBox.getChildren().addAll(clearButton, cancelAllButton, spacer, concurrencyLabel);
 
         return buttonBox;
     }
@@ -2,6 +2,7 @@ package com.emu.toolkit.view;
 
 import com.emu.toolkit.model.AppConfig;
 import com.emu.toolkit.model.PlatformConfig;
+import com.emu.toolkit.model.ResolutionPolicy;
 import com.emu.toolkit.service.ConfigPersistenceService;
 import com.emu.toolkit.viewmodel.BatchViewModel;
 import com.emu.toolkit.viewmodel.ConfigViewModel;
@@ -185,16 +186,14 @@ public class MainView {
             if (selected != null) {
                 appConfig.setSelectedPlatform(selected);
 
-                // Auto-connect to the selected platform's URL
-                configViewModel.urlProperty().set(selected.getUrl());
-
                 // Set the region for this platform
                 String platformRegion = selected.getDefaultRegion();
                 if (platformRegion != null && !platformRegion.isEmpty()) {
                     configViewModel.selectedRegionProperty().set(platformRegion);
                 }
 
-                configViewModel.connectToUrl(success -> {
+                // Auto-connect to the selected platform, reusing its catalog if it is resident
+                configViewModel.connectToPlatform(selected, success -> {
                     if (!success) {
                         showErrorAlert("Connection Failed",
                                 "Could not connect to the selected platform. Please check the URL in settings.");
@@ -358,16 +357,35 @@ public class MainView {
         // Update download folder in config view model
         configViewModel.downloadFolderProperty().set(appConfig.getLastDownloadFolder());
 
+        // Apply the catalog memory budget
+        configViewModel.setCatalogMemoryBudgetMb(appConfig.getCatalogMemoryBudgetMb());
+
+        // Apply the parallel download bounds
+        downloadViewModel.setConcurrencyBounds(appConfig.getMinParallelDownloads(), appConfig.getMaxParallelDownloads());
+        downloadViewModel.setMaxConnectionsPerHost(appConfig.getMaxConnectionsPerHost());
+
+        // Apply the bandwidth limits, running downloads adopt them on the fly
+        downloadViewModel.setBandwidthLimits(appConfig);
+        downloadViewModel.setDatFiles(appConfig.getDatFiles());
+        downloadViewModel.setExtractionOptions(appConfig);
+
+        // Apply the batch search concurrency and match resolution
+        batchViewModel.setSearchConcurrency(appConfig.getBatchSearchConcurrency());
+        batchViewModel.setResolutionPolicy(ResolutionPolicy.fromConfig(appConfig));
+
         // Connect to the selected platform if available and not in advanced mode
         if (!appConfig.isAdvancedMode() && appConfig.getSelectedPlatform() != null) {
-            configViewModel.urlProperty().set(appConfig.getSelectedPlatform().getUrl());
-            configViewModel.connectToUrl(success -> {
+            configViewModel.connectToPlatform(appConfig.getSelectedPlatform(), success -> {
                 if (!success) {
                     showErrorAlert("Connection Failed",
                             "Could not connect to the selected platform. Please check the URL in settings.");
                 }
             });
         }
+
+        // Load any newly configured platform catalogs in the background
+        configViewModel.warmUpCatalogs(appConfig.getConfiguredPlatforms(),
+                appConfig.isAdvancedMode() ? null : appConfig.getSelectedPlatform());
     }
 
     private void showErrorAlert(String title, String message) {
@@ -3,6 +3,8 @@ package com.emu.toolkit.view;
 import com.emu.toolkit.model.RomFile;
 import com.emu.toolkit.viewmodel.ConfigViewModel;
 import com.emu.toolkit.viewmodel.SearchViewModel;
+import javafx.beans.binding.Bindings;
+import javafx.beans.property.ReadOnlyStringWrapper;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.control.*;
@@ -10,6 +12,8 @@ import javafx.scene.layout.HBox;
 import javafx.scene.layout.Priority;
 import javafx.scene.layout.VBox;
 
+import java.util.List;
+
 /**
  * View for the search tab.
  */
@@ -62,7 +66,11 @@ public class SearchView {
         searchButton.setDefaultButton(true);
         searchButton.setOnAction(e -> searchViewModel.performSearch());
 
-        searchBox.getChildren().addAll(searchField, searchButton);
+        // Search every loaded platform instead of only the selected one
+        CheckBox allPlatformsCheckbox = new CheckBox("All platforms");
+        allPlatformsCheckbox.selectedProperty().bindBidirectional(searchViewModel.searchAllPlatformsProperty());
+
+        searchBox.getChildren().addAll(searchField, searchButton, allPlatformsCheckbox);
         return searchBox;
     }
 
@@ -72,9 +80,19 @@ public class SearchView {
         // Set up name column
         TableColumn<RomFile, String> nameColumn = new TableColumn<>("ROM Name");
         nameColumn.setCellValueFactory(cellData -> cellData.getValue().nameProperty());
-        nameColumn.prefWidthProperty().bind(resultsTable.widthProperty());
 
-        resultsTable.getColumns().add(nameColumn);
+        // Platform column, only shown for searches across all platforms
+        TableColumn<RomFile, String> platformColumn = new TableColumn<>("Platform");
+        platformColumn.setCellValueFactory(cellData ->
+                new ReadOnlyStringWrapper(cellData.getValue().getPlatformId()));
+        platformColumn.setPrefWidth(90);
+        platformColumn.visibleProperty().bind(searchViewModel.searchAllPlatformsProperty());
+
+        nameColumn.prefWidthProperty().bind(Bindings.when(platformColumn.visibleProperty())
+                .then(resultsTable.widthProperty().subtract(platformColumn.widthProperty()))
+                .otherwise(resultsTable.widthProperty()));
+
+        resultsTable.getColumns().addAll(List.of(platformColumn, nameColumn));
         resultsTable.setPlaceholder(new Label("No results yet. Enter a search term above."));
 
         // Bind to results
@@ -4,7 +4,13 @@ import com.emu.toolkit.model.AppConfig;
 import com.emu.toolkit.model.PlatformConfig;
 import com.emu.toolkit.service.ConfigPersistenceService;
 import javafx.beans.property.BooleanProperty;
+import javafx.beans.property.IntegerProperty;
 import javafx.beans.property.SimpleBooleanProperty;
+import javafx.beans.property.SimpleIntegerProperty;
+import javafx.beans.property.SimpleStringProperty;
+import javafx.beans.property.StringProperty;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
@@ -13,12 +19,15 @@ import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.control.cell.TextFieldTableCell;
 import javafx.scene.layout.*;
 import javafx.stage.DirectoryChooser;
+import javafx.stage.FileChooser;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
 import javafx.stage.Window;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Dialog for managing application settings.
@@ -27,12 +36,52 @@ public class SettingsView {
     private final AppConfig appConfig;
     private final ConfigPersistenceService configService;
     private final BooleanProperty advancedModeProperty = new SimpleBooleanProperty();
+    private final IntegerProperty catalogMemoryBudgetProperty = new SimpleIntegerProperty();
+    private final IntegerProperty minParallelDownloadsProperty = new SimpleIntegerProperty();
+    private final IntegerProperty maxParallelDownloadsProperty = new SimpleIntegerProperty();
+    private final IntegerProperty maxConnectionsPerHostProperty = new SimpleIntegerProperty();
+    private final IntegerProperty globalBandwidthLimitProperty = new SimpleIntegerProperty();
+    private final IntegerProperty perDownloadBandwidthLimitProperty = new SimpleIntegerProperty();
+    private final BooleanProperty bandwidthScheduleEnabledProperty = new SimpleBooleanProperty();
+    private final StringProperty bandwidthScheduleStartProperty = new SimpleStringProperty();
+    private final StringProperty bandwidthScheduleEndProperty = new SimpleStringProperty();
+    private final ObservableList<String> datFiles = FXCollections.observableArrayList();
+    private final IntegerProperty batchSearchConcurrencyProperty = new SimpleIntegerProperty();
+    private final BooleanProperty autoResolveMatchesProperty = new SimpleBooleanProperty();
+    private final StringProperty resolveRegionPriorityProperty = new SimpleStringProperty();
+    private final BooleanProperty resolvePreferLatestRevisionProperty = new SimpleBooleanProperty();
+    private final BooleanProperty resolvePreferVerifiedProperty = new SimpleBooleanProperty();
+    private final StringProperty resolveExcludeKeywordsProperty = new SimpleStringProperty();
+    private final IntegerProperty resolveMinScoreMarginProperty = new SimpleIntegerProperty();
+    private final BooleanProperty extractArchivesProperty = new SimpleBooleanProperty();
+    private final BooleanProperty deleteArchivesProperty = new SimpleBooleanProperty();
+    private final BooleanProperty streamZipExtractionProperty = new SimpleBooleanProperty();
     private Stage settingsStage;
 
     public SettingsView(AppConfig appConfig, ConfigPersistenceService configService) {
         this.appConfig = appConfig;
         this.configService = configService;
         this.advancedModeProperty.set(appConfig.isAdvancedMode());
+        this.catalogMemoryBudgetProperty.set(appConfig.getCatalogMemoryBudgetMb());
+        this.minParallelDownloadsProperty.set(appConfig.getMinParallelDownloads());
+        this.maxParallelDownloadsProperty.set(appConfig.getMaxParallelDownloads());
+        this.maxConnectionsPerHostProperty.set(appConfig.getMaxConnectionsPerHost());
+        this.globalBandwidthLimitProperty.set(appConfig.getGlobalBandwidthLimitKbps());
+        this.perDownloadBandwidthLimitProperty.set(appConfig.getPerDownloadBandwidthLimitKbps());
+        this.bandwidthScheduleEnabledProperty.set(appConfig.isBandwidthScheduleEnabled());
+        this.bandwidthScheduleStartProperty.set(appConfig.getBandwidthScheduleStart());
+        this.bandwidthScheduleEndProperty.set(appConfig.getBandwidthScheduleEnd());
+        this.datFiles.setAll(appConfig.getDatFiles());
+        this.batchSearchConcurrencyProperty.set(appConfig.getBatchSearchConcurrency());
+        this.autoResolveMatchesProperty.set(appConfig.isAutoResolveMatches());
+        this.resolveRegionPriorityProperty.set(appConfig.getResolveRegionPriority());
+        this.resolvePreferLatestRevisionProperty.set(appConfig.isResolvePreferLatestRevision());
+        this.resolvePreferVerifiedProperty.set(appConfig.isResolvePreferVerified());
+        this.resolveExcludeKeywordsProperty.set(appConfig.getResolveExcludeKeywords());
+        this.resolveMinScoreMarginProperty.set(appConfig.getResolveMinScoreMargin());
+        this.extractArchivesProperty.set(appConfig.isExtractArchives());
+        this.deleteArchivesProperty.set(appConfig.isDeleteArchivesAfterExtraction());
+        this.streamZipExtractionProperty.set(appConfig.isStreamZipExtraction());
     }
 
     /**
@@ -138,6 +187,170 @@ public class SettingsView {
 
         folderBox.getChildren().addAll(folderField, browseButton);
 
+        // Catalog memory budget setting
+        Label catalogBudgetLabel = new Label("Catalog Memory Budget (MB):");
+        Spinner<Integer> catalogBudgetSpinner = createIntegerSpinner(0, 8192, 64, catalogMemoryBudgetProperty);
+
+        Label catalogBudgetHelp = new Label(
+                "Loaded platform catalogs stay in memory so switching platforms is instant. " +
+                        "When the budget is exceeded the least recently used platform is unloaded. " +
+                        "Use 0 to keep every platform loaded."
+        );
+        catalogBudgetHelp.setWrapText(true);
+
+        // Batch search concurrency
+        Label batchSearchLabel = new Label("Parallel Batch Searches:");
+        Spinner<Integer> batchSearchSpinner = createIntegerSpinner(1, 32, 1, batchSearchConcurrencyProperty);
+
+        Label batchSearchHelp = new Label(
+                "How many titles of a batch are looked up in the catalog at the same time. " +
+                        "Matches are queued for download as soon as they are found."
+        );
+        batchSearchHelp.setWrapText(true);
+
+        // Automatic resolution of titles with several matches
+        CheckBox autoResolveCheckbox = new CheckBox("Pick one ROM automatically when a batch title has several matches");
+        autoResolveCheckbox.selectedProperty().bindBidirectional(autoResolveMatchesProperty);
+
+        TextField regionPriorityField = new TextField();
+        regionPriorityField.setPromptText("USA, World, Europe, Japan");
+        regionPriorityField.textProperty().bindBidirectional(resolveRegionPriorityProperty);
+        HBox.setHgrow(regionPriorityField, Priority.ALWAYS);
+
+        TextField excludeKeywordsField = new TextField();
+        excludeKeywordsField.setPromptText("Beta, Proto, Demo");
+        excludeKeywordsField.textProperty().bindBidirectional(resolveExcludeKeywordsProperty);
+        HBox.setHgrow(excludeKeywordsField, Priority.ALWAYS);
+
+        CheckBox preferLatestCheckbox = new CheckBox("Prefer the latest revision");
+        preferLatestCheckbox.selectedProperty().bindBidirectional(resolvePreferLatestRevisionProperty);
+
+        CheckBox preferVerifiedCheckbox = new CheckBox("Prefer verified [!] dumps");
+        preferVerifiedCheckbox.selectedProperty().bindBidirectional(resolvePreferVerifiedProperty);
+
+        HBox regionPriorityBox = new HBox(10, new Label("Region priority"), regionPriorityField);
+        regionPriorityBox.setAlignment(Pos.CENTER_LEFT);
+        HBox excludeKeywordsBox = new HBox(10, new Label("Exclude keywords"), excludeKeywordsField);
+        excludeKeywordsBox.setAlignment(Pos.CENTER_LEFT);
+        // The margin only matters to automatic resolution, the rest also picks the full set's ROMs
+        Spinner<Integer> minScoreMarginSpinner = createIntegerSpinner(0, 1000, 10, resolveMinScoreMarginProperty);
+        minScoreMarginSpinner.disableProperty().bind(autoResolveMatchesProperty.not());
+        HBox resolveOptionsBox = new HBox(10, preferLatestCheckbox, preferVerifiedCheckbox,
+                new Label("Minimum margin"), minScoreMarginSpinner);
+        resolveOptionsBox.setAlignment(Pos.CENTER_LEFT);
+
+        VBox resolveBox = new VBox(5, regionPriorityBox, excludeKeywordsBox, resolveOptionsBox);
+
+        Label resolveHelp = new Label(
+                "Releases are ranked by the first listed region they belong to, then by revision and " +
+                        "verified dumps. Releases with an excluded keyword in a tag, such as (Beta) or (Kiosk Demo), " +
+                        "are never picked, words of the title don't count. When the best " +
+                        "release doesn't lead the next one by the minimum margin, or the matches are " +
+                        "different games, the title is left for manual selection."
+        );
+        resolveHelp.setWrapText(true);
+
+        // Parallel download bounds
+        Label parallelDownloadsLabel = new Label("Parallel Downloads:");
+        HBox parallelDownloadsBox = new HBox(10);
+        parallelDownloadsBox.setAlignment(Pos.CENTER_LEFT);
+        parallelDownloadsBox.getChildren().addAll(
+                new Label("Minimum"), createIntegerSpinner(1, 64, 1, minParallelDownloadsProperty),
+                new Label("Maximum"), createIntegerSpinner(1, 64, 1, maxParallelDownloadsProperty),
+                new Label("Per host"), createIntegerSpinner(1, 32, 1, maxConnectionsPerHostProperty));
+
+        Label parallelDownloadsHelp = new Label(
+                "The number of simultaneous downloads adapts to the measured throughput and backs off " +
+                        "when the server reports errors. It always stays between these limits. " +
+                        "Queued downloads from different hosts take turns, and no host gets more " +
+                        "than the per host number of connections."
+        );
+        parallelDownloadsHelp.setWrapText(true);
+
+        // Bandwidth limits
+        Label bandwidthLabel = new Label("Bandwidth Limit (KB/s, 0 = unlimited):");
+        HBox bandwidthBox = new HBox(10);
+        bandwidthBox.setAlignment(Pos.CENTER_LEFT);
+        bandwidthBox.getChildren().addAll(
+                new Label("Global"), createIntegerSpinner(0, 1_000_000, 64, globalBandwidthLimitProperty),
+                new Label("Per download"), createIntegerSpinner(0, 1_000_000, 64, perDownloadBandwidthLimitProperty));
+
+        CheckBox bandwidthScheduleCheckbox = new CheckBox("Only limit between");
+        bandwidthScheduleCheckbox.selectedProperty().bindBidirectional(bandwidthScheduleEnabledProperty);
+        TextField scheduleStartField = createTimeField(bandwidthScheduleStartProperty);
+        TextField scheduleEndField = createTimeField(bandwidthScheduleEndProperty);
+        scheduleStartField.disableProperty().bind(bandwidthScheduleEnabledProperty.not());
+        scheduleEndField.disableProperty().bind(bandwidthScheduleEnabledProperty.not());
+
+        HBox bandwidthScheduleBox = new HBox(10);
+        bandwidthScheduleBox.setAlignment(Pos.CENTER_LEFT);
+        bandwidthScheduleBox.getChildren().addAll(
+                bandwidthScheduleCheckbox, scheduleStartField, new Label("and"), scheduleEndField);
+
+        Label bandwidthHelp = new Label(
+                "Caps the download speed of all downloads together and of each download on its own. " +
+                        "Changes apply to running downloads right away. With the schedule enabled the limits " +
+                        "only hold between the two times (HH:mm), downloads run at full speed otherwise."
+        );
+        bandwidthHelp.setWrapText(true);
+
+        // DAT files for checksum verification
+        Label datFilesLabel = new Label("Checksum DAT Files:");
+        ListView<String> datFilesList = new ListView<>(datFiles);
+        datFilesList.setPrefHeight(100);
+
+        Button addDatButton = new Button("Add DAT...");
+        addDatButton.setOnAction(e -> {
+            FileChooser fileChooser = new FileChooser();
+            fileChooser.setTitle("Select DAT Files");
+            fileChooser.getExtensionFilters().addAll(
+                    new FileChooser.ExtensionFilter("DAT files", "*.dat", "*.xml"),
+                    new FileChooser.ExtensionFilter("All files", "*.*"));
+            List<File> selected = fileChooser.showOpenMultipleDialog(settingsStage);
+            if (selected != null) {
+                for (File file : selected) {
+                    if (!datFiles.contains(file.getAbsolutePath())) {
+                        datFiles.add(file.getAbsolutePath());
+                    }
+                }
+            }
+        });
+
+        Button removeDatButton = new Button("Remove");
+        removeDatButton.disableProperty().bind(datFilesList.getSelectionModel().selectedItemProperty().isNull());
+        removeDatButton.setOnAction(e -> datFiles.remove(datFilesList.getSelectionModel().getSelectedItem()));
+
+        HBox datButtonBox = new HBox(10, addDatButton, removeDatButton);
+
+        Label datFilesHelp = new Label(
+                "No-Intro or Redump DAT files. Downloads listed in them are checksummed while they " +
+                        "are written and marked as verified or mismatched once complete."
+        );
+        datFilesHelp.setWrapText(true);
+
+        // Archive extraction
+        CheckBox extractArchivesCheckbox = new CheckBox("Extract .zip and .7z archives after download");
+        extractArchivesCheckbox.selectedProperty().bindBidirectional(extractArchivesProperty);
+
+        CheckBox deleteArchivesCheckbox = new CheckBox("Delete archives once extracted");
+        deleteArchivesCheckbox.selectedProperty().bindBidirectional(deleteArchivesProperty);
+        deleteArchivesCheckbox.disableProperty().bind(extractArchivesProperty.not());
+
+        CheckBox streamZipCheckbox = new CheckBox("Extract zip files while downloading");
+        streamZipCheckbox.selectedProperty().bindBidirectional(streamZipExtractionProperty);
+        // Only archives that are deleted anyway are streamed, a kept one marks the ROM as downloaded
+        streamZipCheckbox.disableProperty().bind(extractArchivesProperty.not().or(deleteArchivesProperty.not()));
+
+        VBox extractionBox = new VBox(5, extractArchivesCheckbox, deleteArchivesCheckbox, streamZipCheckbox);
+
+        Label extractionHelp = new Label(
+                "Archives are unpacked into the download folder in the background, without holding up " +
+                        "other downloads. Extracting zips while downloading never stores the archive, " +
+                        "so it is only available when archives are deleted once extracted, and such a " +
+                        "download can't be resumed if it is interrupted."
+        );
+        extractionHelp.setWrapText(true);
+
         // Add help text for settings
         TitledPane helpPane = new TitledPane("Settings Help", createHelpText());
         helpPane.setExpanded(false);
@@ -155,6 +368,35 @@ public class SettingsView {
                 downloadFolderLabel,
                 folderBox,
                 new Separator(),
+                catalogBudgetLabel,
+                catalogBudgetSpinner,
+                catalogBudgetHelp,
+                new Separator(),
+                batchSearchLabel,
+                batchSearchSpinner,
+                batchSearchHelp,
+                new Separator(),
+                autoResolveCheckbox,
+                resolveBox,
+                resolveHelp,
+                new Separator(),
+                parallelDownloadsLabel,
+                parallelDownloadsBox,
+                parallelDownloadsHelp,
+                new Separator(),
+                bandwidthLabel,
+                bandwidthBox,
+                bandwidthScheduleBox,
+                bandwidthHelp,
+                new Separator(),
+                datFilesLabel,
+                datFilesList,
+                datButtonBox,
+                datFilesHelp,
+                new Separator(),
+                extractionBox,
+                extractionHelp,
+                new Separator(),
                 helpPane
         );
 
@@ -164,6 +406,32 @@ public class SettingsView {
         return content;
     }
 
+    /**
+     * Create a text field for an HH:mm time of day kept in sync with a property
+     */
+    private TextField createTimeField(StringProperty property) {
+        TextField field = new TextField();
+        field.setPromptText("HH:mm");
+        field.setPrefWidth(70);
+        field.textProperty().bindBidirectional(property);
+        return field;
+    }
+
+    /**
+     * Create an editable integer spinner kept in sync with a property
+     */
+    private Spinner<Integer> createIntegerSpinner(int min, int max, int step, IntegerProperty property) {
+        Spinner<Integer> spinner = new Spinner<>(min, max, property.get(), step);
+        spinner.setEditable(true);
+        spinner.setPrefWidth(120);
+        spinner.valueProperty().addListener((obs, oldVal, newVal) -> {
+            if (newVal != null) {
+                property.set(newVal);
+            }
+        });
+        return spinner;
+    }
+
     /**
      * Create a help text area with instructions
      */
@@ -339,6 +607,31 @@ public class SettingsView {
     private void saveSettings() {
         // Update advanced mode setting from property
         appConfig.setAdvancedMode(advancedModeProperty.get());
+        appConfig.setCatalogMemoryBudgetMb(catalogMemoryBudgetProperty.get());
+        appConfig.setMinParallelDownloads(minParallelDownloadsProperty.get());
+        appConfig.setMaxParallelDownloads(Math.max(minParallelDownloadsProperty.get(), maxParallelDownloadsProperty.get()));
+        appConfig.setMaxConnectionsPerHost(maxConnectionsPerHostProperty.get());
+        appConfig.setGlobalBandwidthLimitKbps(globalBandwidthLimitProperty.get());
+        appConfig.setPerDownloadBandwidthLimitKbps(perDownloadBandwidthLimitProperty.get());
+        appConfig.setBandwidthScheduleEnabled(bandwidthScheduleEnabledProperty.get());
+        appConfig.setDatFiles(new ArrayList<>(datFiles));
+        appConfig.setBatchSearchConcurrency(batchSearchConcurrencyProperty.get());
+        appConfig.setAutoResolveMatches(autoResolveMatchesProperty.get());
+        appConfig.setResolveRegionPriority(resolveRegionPriorityProperty.get().trim());
+        appConfig.setResolvePreferLatestRevision(resolvePreferLatestRevisionProperty.get());
+        appConfig.setResolvePreferVerified(resolvePreferVerifiedProperty.get());
+        appConfig.setResolveExcludeKeywords(resolveExcludeKeywordsProperty.get().trim());
+        appConfig.setResolveMinScoreMargin(resolveMinScoreMarginProperty.get());
+        appConfig.setExtractArchives(extractArchivesProperty.get());
+        appConfig.setDeleteArchivesAfterExtraction(deleteArchivesProperty.get());
+        appConfig.setStreamZipExtraction(streamZipExtractionProperty.get());
+        // Invalid times keep the previous schedule
+        if (AppConfig.parseTimeOfDay(bandwidthScheduleStartProperty.get()) != null) {
+            appConfig.setBandwidthScheduleStart(bandwidthScheduleStartProperty.get().trim());
+        }
+        if (AppConfig.parseTimeOfDay(bandwidthScheduleEndProperty.get()) != null) {
+            appConfig.setBandwidthScheduleEnd(bandwidthScheduleEndProperty.get().trim());
+        }
 
         // Update download folder from field
         VBox generalPane = (VBox) ((TabPane) settingsStage.getScene().getRoot().getChildrenUnmodifiable().get(0))
@@ -1,18 +1,29 @@
 package com.emu.toolkit.viewmodel;
 
+import com.emu.toolkit.model.ResolutionPolicy;
 import com.emu.toolkit.model.RomFile;
 import com.emu.toolkit.service.DownloadService;
 import com.emu.toolkit.service.RomScraperService;
+import com.emu.toolkit.service.TransferPlanner;
+import com.emu.toolkit.util.TitleListReader;
 import javafx.application.Platform;
 import javafx.beans.property.BooleanProperty;
+import javafx.beans.property.DoubleProperty;
 import javafx.beans.property.SimpleBooleanProperty;
+import javafx.beans.property.SimpleDoubleProperty;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.beans.property.StringProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.*;
-import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
 import java.util.stream.Collectors;
 
 /**
@@ -26,12 +37,26 @@ public class BatchViewModel {
     // Properties
     private final StringProperty batchInputProperty = new SimpleStringProperty("");
     private final BooleanProperty processingProperty = new SimpleBooleanProperty(false);
+    private final DoubleProperty batchProgressProperty = new SimpleDoubleProperty(0);
+    // A dry run resolves and sizes the titles, its plan is queued on request
+    private final BooleanProperty dryRunProperty = new SimpleBooleanProperty(false);
+    private final BooleanProperty planReadyProperty = new SimpleBooleanProperty(false);
+    private final TransferPlanner transferPlanner = new TransferPlanner();
+    private TransferPlanner.Plan plan;
     private final ObservableList<String> batchResultsProperty = FXCollections.observableArrayList();
 
     // Storage for multiple matches that need user selection
     private final Map<String, List<RomFile>> pendingSelections = new HashMap<>();
     private final ObservableList<String> pendingGames = FXCollections.observableArrayList();
 
+    // Number of titles searched at the same time
+    private static final int DEFAULT_SEARCH_CONCURRENCY = 4;
+    private volatile int searchConcurrency = DEFAULT_SEARCH_CONCURRENCY;
+    // Picks one of several matches of a title, ambiguous titles are left for the user
+    private volatile ResolutionPolicy resolutionPolicy = ResolutionPolicy.MANUAL;
+    // Titles read ahead of the searches, per search thread
+    private static final int TITLES_IN_FLIGHT_PER_SEARCH = 4;
+
     public BatchViewModel(RomScraperService romScraperService, DownloadService downloadService, ConfigViewModel configViewModel) {
         this.romScraperService = romScraperService;
         this.downloadService = downloadService;
@@ -55,68 +80,374 @@ public class BatchViewModel {
             return;
         }
 
+        runBatch("Processing batch of " + gamesList.size() + " games", downloadFolder,
+                (titles, progress) -> {
+                    for (int i = 0; i < gamesList.size(); i++) {
+                        titles.accept(gamesList.get(i));
+                        progress.accept((i + 1) / (double) gamesList.size());
+                    }
+                });
+    }
+
+    /**
+     * Process the titles of a want-list file. The file is read as the searches progress,
+     * never held in memory as a whole.
+     */
+    public void importBatch(File file, String downloadFolder) {
+        runBatch("Importing titles from " + file.getName(), downloadFolder,
+                (titles, progress) -> TitleListReader.read(file, titles, progress));
+    }
+
+    /**
+     * Where the titles of a batch come from
+     */
+    private interface TitleSource {
+        void feed(Consumer<String> titles, DoubleConsumer progress) throws IOException;
+    }
+
+    /**
+     * Run the titles of a source through the search pipeline. A feeder thread reads the
+     * source and blocks while the searches are that many titles behind, so a huge list
+     * only ever has a bounded number of titles in flight.
+     */
+    private void runBatch(String description, String downloadFolder, TitleSource source) {
+        startBatch();
+        boolean dryRun = dryRunProperty.get();
+        batchResultsProperty.add(dryRun ? description + " (dry run, nothing is queued)" : description);
+
+        // Get the region from ConfigViewModel
+        String region = configViewModel.getSelectedRegion();
+        int concurrency = searchConcurrency;
+
+        Thread feeder = new Thread(() -> {
+            TransferPlanner.Plan newPlan = null;
+            try {
+                newPlan = searchAll(source, downloadFolder, region, dryRun, concurrency);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+                Platform.runLater(() -> batchResultsProperty.add("Error during batch processing: " + e.getMessage()));
+            } finally {
+                // Always end processing, whatever went wrong
+                finishBatch(newPlan);
+            }
+        }, "batch-feeder");
+        feeder.setDaemon(true);
+        feeder.start();
+    }
+
+    /**
+     * Feed the titles to the searches and wait for all of them, runs on the feeder thread.
+     * Returns the plan of a dry run, null otherwise or if the source failed.
+     */
+    private TransferPlanner.Plan searchAll(TitleSource source, String downloadFolder, String region, boolean dryRun,
+                                           int concurrency) {
+        // Search several titles at once, each match is queued as soon as it resolves
+        ExecutorService searchExecutor = Executors.newFixedThreadPool(concurrency, runnable -> {
+            Thread thread = new Thread(runnable, "batch-search");
+            thread.setDaemon(true);
+            return thread;
+        });
+        int maxInFlight = concurrency * TITLES_IN_FLIGHT_PER_SEARCH;
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        OrderedResults results = new OrderedResults();
+        int[] count = new int[1];
+
+        String error = null;
+        try {
+            source.feed(game -> {
+                inFlight.acquireUninterruptibly();
+                int index = count[0]++;
+                try {
+                    searchExecutor.execute(() -> {
+                        GameResult result;
+                        try {
+                            result = processGame(game, downloadFolder, region, dryRun);
+                        } catch (RuntimeException e) {
+                            // Keep the ordered output flowing past a failed title
+                            e.printStackTrace();
+                            result = new GameResult(game);
+                            result.lines.add("  - Error searching for: " + game + " (" + e.getMessage() + ")");
+                        }
+                        try {
+                            results.complete(index, result);
+                        } finally {
+                            inFlight.release();
+                        }
+                    });
+                } catch (RuntimeException e) {
+                    inFlight.release();
+                    throw e;
+                }
+            }, new ProgressSteps());
+        } catch (IOException | RuntimeException e) {
+            // The titles read so far are still searched and reported
+            e.printStackTrace();
+            error = e.getMessage();
+        } finally {
+            // Wait for the searches still running
+            inFlight.acquireUninterruptibly(maxInFlight);
+            searchExecutor.shutdown();
+        }
+
+        String finalError = error;
+        int total = count[0];
+        Platform.runLater(() -> {
+            if (finalError != null) {
+                batchResultsProperty.add("Error during batch processing: " + finalError);
+            }
+            batchResultsProperty.add("Batch processing complete, " + total + " games processed.");
+            if (!pendingSelections.isEmpty()) {
+                batchResultsProperty.add("Found " + pendingSelections.size() + " games with multiple matches. Please manually select them from the pending list.");
+            }
+        });
+
+        return dryRun && finalError == null ? planTransfer(results.getPlanned(), downloadFolder) : null;
+    }
+
+    /**
+     * Build a one-game-one-ROM set of the whole catalog of the current platform with the
+     * resolution policy's regions and exclusions, and queue it in one go
+     */
+    public void buildFullSet(String downloadFolder) {
+        startBatch();
+        boolean dryRun = dryRunProperty.get();
+        ResolutionPolicy policy = resolutionPolicy;
+        batchResultsProperty.add("Building a full set of the current platform"
+                + (dryRun ? " (dry run, nothing is queued)" : ""));
+
+        Thread builder = new Thread(() -> {
+            TransferPlanner.Plan newPlan = null;
+            try {
+                long start = System.nanoTime();
+                RomScraperService.FullSet set = romScraperService.buildFullSet(policy);
+                long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+                String summary = "Selected " + set.getGames() + " games (" + set.getRoms().size() + " files) out of "
+                        + romScraperService.getRomFilesCount() + " catalog entries in " + elapsedMs + " ms";
+                String exclusions = "  Excluded " + set.getExcluded() + (set.getExcluded() == 1 ? " entry" : " entries")
+                        + " as bad dumps or by keyword";
+
+                if (dryRun) {
+                    Platform.runLater(() -> batchResultsProperty.addAll(summary, exclusions));
+                    newPlan = planTransfer(set.getRoms(), downloadFolder);
+                } else {
+                    int added = downloadService.addAllToQueue(set.getRoms(), downloadFolder);
+                    Platform.runLater(() -> {
+                        batchResultsProperty.add(summary);
+                        batchResultsProperty.add(exclusions);
+                        batchResultsProperty.add("  + Added " + added + (added == 1 ? " file" : " files") + " to queue");
+                    });
+                }
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+                Platform.runLater(() -> batchResultsProperty.add("Error building the set: " + e.getMessage()));
+            } finally {
+                finishBatch(newPlan);
+            }
+        }, "set-builder");
+        builder.setDaemon(true);
+        builder.start();
+    }
+
+    /**
+     * Reset the results of the previous batch, on the FX thread
+     */
+    private void startBatch() {
         processingProperty.set(true);
+        batchProgressProperty.set(0);
         batchResultsProperty.clear();
         pendingSelections.clear();
         pendingGames.clear();
-        batchResultsProperty.add("Processing batch of " + gamesList.size() + " games");
+        plan = null;
+        planReadyProperty.set(false);
+    }
 
-        // Get the region from ConfigViewModel
-        String region = configViewModel.getSelectedRegion();
+    /**
+     * Report the plan of a dry run, if any, and end processing
+     */
+    private void finishBatch(TransferPlanner.Plan newPlan) {
+        Platform.runLater(() -> {
+            if (newPlan != null) {
+                plan = newPlan;
+                batchResultsProperty.addAll(newPlan.summarize(downloadService.getEstimatedThroughput()));
+                planReadyProperty.set(!newPlan.getRoms().isEmpty());
+            }
+            batchProgressProperty.set(1.0);
+            processingProperty.set(false);
+        });
+    }
 
-        // Create a CompletableFuture chain to process games sequentially
-        CompletableFuture<Void> future = CompletableFuture.completedFuture(null);
+    /**
+     * Probe the sizes of a dry run's ROMs, runs on the feeder thread. ROMs already in the
+     * download list are left out. Returns null if interrupted.
+     */
+    private TransferPlanner.Plan planTransfer(List<RomFile> planned, String downloadFolder) {
+        Map<String, RomFile> byUrl = new LinkedHashMap<>();
+        for (RomFile rom : planned) {
+            if (!downloadService.isInList(rom.getUrl())) {
+                byUrl.putIfAbsent(rom.getUrl(), rom);
+            }
+        }
 
-        for (String game : gamesList) {
-            future = future.thenCompose(v -> processGame(game, downloadFolder, region));
+        Platform.runLater(() -> {
+            batchResultsProperty.add("Checking the size of " + byUrl.size() + " files...");
+            batchProgressProperty.set(0);
+        });
+        try {
+            return transferPlanner.plan(new ArrayList<>(byUrl.values()), downloadFolder, new ProgressSteps());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
         }
+    }
 
-        future.whenComplete((v, error) -> {
-            if (error != null) {
-                Platform.runLater(() -> {
-                    batchResultsProperty.add("Error during batch processing: " + error.getMessage());
-                    processingProperty.set(false);
-                });
+    /**
+     * Queue the ROMs of the last dry run in one go, unless the download folder no longer has
+     * room for them
+     *
+     * @return whether anything was queued
+     */
+    public boolean queuePlannedDownloads() {
+        if (plan == null) {
+            return false;
+        }
+
+        if (!plan.hasEnoughSpace()) {
+            batchResultsProperty.add("  ! Not enough free space in " + plan.getDownloadFolder() + ", nothing was queued");
+            return false;
+        }
+
+        int added = downloadService.addAllToQueue(plan.getRoms(), plan.getDownloadFolder());
+        batchResultsProperty.add("  + Added " + added + (added == 1 ? " file" : " files") + " to queue");
+        plan = null;
+        planReadyProperty.set(false);
+        return true;
+    }
+
+    /**
+     * Publishes a progress fraction in whole percent steps only, callable from any thread
+     */
+    private class ProgressSteps implements DoubleConsumer {
+        private double published;
+
+        @Override
+        public synchronized void accept(double progress) {
+            if (progress - published >= 0.01 || (progress >= 1.0 && published < 1.0)) {
+                published = progress;
+                Platform.runLater(() -> batchProgressProperty.set(progress));
+            }
+        }
+    }
+
+    /**
+     * Search one title and queue it if the match is unambiguous, runs on a search thread
+     */
+    private GameResult processGame(String game, String downloadFolder, String region, boolean dryRun) {
+        GameResult result = new GameResult(game);
+        result.lines.add("Searching for: " + game);
+
+        List<RomFile> matches = romScraperService.findRoms(game, region);
+        if (matches.isEmpty()) {
+            result.lines.add("  - No matches found for: " + game);
+        } else if (matches.size() == 1) {
+            // Single match - add directly to download queue
+            queue(result, matches.get(0), "", downloadFolder, dryRun);
+        } else {
+            // Multiple matches - let the policy pick one, or store them for later user selection
+            RomFile chosen = resolutionPolicy.choose(game, matches);
+            if (chosen == null) {
+                result.lines.add("  ! Multiple matches found for: " + game + " (skipped for manual selection)");
+                result.matches = new ArrayList<>(matches);
             } else {
-                Platform.runLater(() -> {
-                    batchResultsProperty.add("Batch processing complete.");
-                    if (!pendingSelections.isEmpty()) {
-                        batchResultsProperty.add("Found " + pendingSelections.size() + " games with multiple matches. Please manually select them from the pending list.");
-                        pendingGames.addAll(pendingSelections.keySet());
-                    }
-                    processingProperty.set(false);
-                });
+                queue(result, chosen, " (picked from " + matches.size() + " matches)", downloadFolder, dryRun);
             }
-        });
+        }
+        return result;
     }
 
-    private CompletableFuture<Void> processGame(String game, String downloadFolder, String region) {
-        CompletableFuture<Void> future = new CompletableFuture<>();
+    /**
+     * Queue the ROM found for a title, a dry run only records it for the plan
+     */
+    private void queue(GameResult result, RomFile rom, String note, String downloadFolder, boolean dryRun) {
+        if (dryRun) {
+            result.planned = rom;
+            result.lines.add("  + Planned: " + rom.getName() + note);
+        } else if (downloadService.addToQueue(rom, downloadFolder)) {
+            result.lines.add("  + Added to queue: " + rom.getName() + note);
+        } else {
+            result.lines.add("  = Already in queue: " + rom.getName());
+        }
+    }
 
-        Platform.runLater(() -> batchResultsProperty.add("Searching for: " + game));
+    /**
+     * Log lines and pending matches of one title
+     */
+    private static class GameResult {
+        final String game;
+        final List<String> lines = new ArrayList<>(2);
+        List<RomFile> matches;
+        // ROM a dry run would queue
+        RomFile planned;
 
-        // Convert to CompletableFuture pattern
-        romScraperService.searchRoms(game, region, matches -> {
-            if (matches.isEmpty()) {
-                Platform.runLater(() -> batchResultsProperty.add("  - No matches found for: " + game));
-                future.complete(null);
-            } else if (matches.size() == 1) {
-                // Single match - add directly to download queue
-                RomFile rom = matches.get(0);
-                downloadService.addToQueue(rom, downloadFolder);
-                Platform.runLater(() -> batchResultsProperty.add("  + Added to queue: " + rom.getName()));
-                future.complete(null);
-            } else {
-                // Multiple matches - store for later user selection
-                Platform.runLater(() -> {
-                    batchResultsProperty.add("  ! Multiple matches found for: " + game + " (skipped for manual selection)");
-                    pendingSelections.put(game, new ArrayList<>(matches));
-                });
-                future.complete(null);
+        GameResult(String game) {
+            this.game = game;
+        }
+    }
+
+    /**
+     * Collects results as searches finish in any order and publishes them in input order,
+     * each run of consecutive finished titles in a single runLater. Only results waiting
+     * for an earlier title are held, at most the number of titles in flight.
+     */
+    private class OrderedResults {
+        private final Map<Integer, GameResult> waiting = new HashMap<>();
+        // ROMs of a dry run in input order
+        private final List<RomFile> planned = new ArrayList<>();
+        private int nextToPublish;
+
+        synchronized List<RomFile> getPlanned() {
+            return new ArrayList<>(planned);
+        }
+
+        synchronized void complete(int index, GameResult result) {
+            waiting.put(index, result);
+
+            List<GameResult> ready = new ArrayList<>();
+            GameResult next;
+            while ((next = waiting.remove(nextToPublish)) != null) {
+                ready.add(next);
+                if (next.planned != null) {
+                    planned.add(next.planned);
+                }
+                nextToPublish++;
             }
-        });
+            if (ready.isEmpty()) {
+                return;
+            }
+
+            Platform.runLater(() -> {
+                for (GameResult game : ready) {
+                    batchResultsProperty.addAll(game.lines);
+                    if (game.matches != null && !pendingSelections.containsKey(game.game)) {
+                        pendingSelections.put(game.game, game.matches);
+                        pendingGames.add(game.game);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Sets how many titles of a batch are searched at the same time.
+     */
+    public void setSearchConcurrency(int searchConcurrency) {
+        this.searchConcurrency = Math.max(1, searchConcurrency);
+    }
 
-        return future;
+    /**
+     * Sets how a title with several matches is resolved without asking the user.
+     */
+    public void setResolutionPolicy(ResolutionPolicy resolutionPolicy) {
+        this.resolutionPolicy = resolutionPolicy;
     }
 
     /**
@@ -169,6 +500,24 @@ public class BatchViewModel {
         return processingProperty;
     }
 
+    public BooleanProperty dryRunProperty() {
+        return dryRunProperty;
+    }
+
+    /**
+     * Whether a dry run plan is waiting to be queued
+     */
+    public BooleanProperty planReadyProperty() {
+        return planReadyProperty;
+    }
+
+    /**
+     * Fraction of the batch input read, or of a dry run's sizes probed, so far
+     */
+    public DoubleProperty batchProgressProperty() {
+        return batchProgressProperty;
+    }
+
     public ObservableList<String> getBatchResults() {
         return batchResultsProperty;
     }
@@ -1,5 +1,6 @@
 package com.emu.toolkit.viewmodel;
 
+import com.emu.toolkit.model.PlatformConfig;
 import com.emu.toolkit.service.DownloadService;
 import com.emu.toolkit.service.RomScraperService;
 import javafx.application.Platform;
@@ -55,6 +56,21 @@ public class ConfigViewModel {
     }
 
     public void connectToUrl(Consumer<Boolean> callback) {
+        connect(null, getSelectedExtension(), callback);
+    }
+
+    /**
+     * Connect to a configured platform. Its catalog stays resident, so switching
+     * back to a platform that was loaded before is instant.
+     */
+    public void connectToPlatform(PlatformConfig platform, Consumer<Boolean> callback) {
+        urlProperty.set(platform.getUrl());
+        // The platform's own extension, the same one its catalog was warmed up with
+        String extension = platform.getFileExtension() != null ? platform.getFileExtension() : "";
+        connect(platform.getId(), extension, callback);
+    }
+
+    private void connect(String platformId, String extension, Consumer<Boolean> callback) {
         String url = urlProperty.get();
         if (url == null || url.isEmpty()) {
             statusMessageProperty.set("Invalid URL. Please enter a valid URL.");
@@ -62,48 +78,29 @@ public class ConfigViewModel {
             return;
         }
 
-        // Get the extension to use for connection
-        String extension = getSelectedExtension();
+        // Swap in the resident catalog if this platform was loaded before
+        if (platformId != null && romScraperService.activatePlatform(platformId, url, extension)) {
+            callback.accept(true);
+            return;
+        }
+
         loadingProperty.set(true);
 
-        // If using auto-select, try to detect the most common extension
-        if (extension.isEmpty() || "(Auto Select)".equals(extension)) {
-            // Run in background thread to avoid UI freezing
-            Thread detectionThread = new Thread(() -> {
-                String detectedExtension = romScraperService.detectMostCommonExtension(url);
-
-                // Connect with the detected extension
-                if (!detectedExtension.isEmpty()) {
-                    connectWithExtension(url, detectedExtension, success -> {
-                        // Update the extensions list on the JavaFX application thread
-                        if (success) {
-                            Platform.runLater(() -> {
-                                updateExtensionsWithDetected(detectedExtension);
-                                callback.accept(true);
-                            });
-                        } else {
-                            Platform.runLater(() -> callback.accept(false));
-                        }
-                    });
-                } else {
-                    // If no extension detected, connect with empty extension
-                    connectWithExtension(url, "", result -> {
-                        Platform.runLater(() -> callback.accept(result));
-                    });
+        // With auto-select the extension is detected from the same listing download
+        boolean autoSelect = extension.isEmpty() || "(Auto Select)".equals(extension);
+        connectWithExtension(platformId, url, autoSelect ? "" : extension, success -> {
+            Platform.runLater(() -> {
+                String detectedExtension = romScraperService.getCurrentExtension();
+                if (success && autoSelect && !detectedExtension.isEmpty()) {
+                    updateExtensionsWithDetected(detectedExtension);
                 }
+                callback.accept(success);
             });
-            detectionThread.setDaemon(true); // Mark as daemon thread to not block application shutdown
-            detectionThread.start();
-        } else {
-            // Connect with the selected/custom extension
-            connectWithExtension(url, extension, result -> {
-                Platform.runLater(() -> callback.accept(result));
-            });
-        }
+        });
     }
 
-    private void connectWithExtension(String url, String extension, Consumer<Boolean> callback) {
-        romScraperService.connectToUrl(url, extension, success -> {
+    private void connectWithExtension(String platformId, String url, String extension, Consumer<Boolean> callback) {
+        romScraperService.connectToUrl(platformId, url, extension, success -> {
             callback.accept(success);
         });
     }
@@ -155,6 +152,23 @@ public class ConfigViewModel {
         return selected;
     }
 
+    /**
+     * Loads the catalogs of every configured platform in the background. The selected
+     * platform is skipped since it is connected through {@link #connectToPlatform}.
+     */
+    public void warmUpCatalogs(List<PlatformConfig> platforms, PlatformConfig selected) {
+        List<PlatformConfig> others = new ArrayList<>(platforms);
+        others.remove(selected);
+        romScraperService.warmUpCatalogs(others);
+    }
+
+    /**
+     * Sets how many megabytes resident platform catalogs may use, 0 for no limit.
+     */
+    public void setCatalogMemoryBudgetMb(int megabytes) {
+        romScraperService.setCatalogMemoryBudget(megabytes * 1024L * 1024L);
+    }
+
     /**
      * Gets the currently selected region, or null if "Any" is selected.
      */
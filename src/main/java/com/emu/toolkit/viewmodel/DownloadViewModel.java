@@ -1,11 +1,15 @@
 package com.emu.toolkit.viewmodel;
 
+import com.emu.toolkit.model.AppConfig;
 import com.emu.toolkit.model.DownloadTask;
 import com.emu.toolkit.service.DownloadService;
+import javafx.beans.property.IntegerProperty;
 import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.SimpleObjectProperty;
 import javafx.collections.ObservableList;
 
+import java.util.List;
+
 /**
  * ViewModel for the download manager screen.
  */
@@ -23,6 +27,41 @@ public class DownloadViewModel {
         return downloadService.getDownloadTasks();
     }
 
+    /**
+     * Sets the range the number of parallel downloads adapts in.
+     */
+    public void setConcurrencyBounds(int min, int max) {
+        downloadService.setConcurrencyBounds(min, max);
+    }
+
+    /**
+     * Sets how many connections may be open against a single host.
+     */
+    public void setMaxConnectionsPerHost(int maxConnections) {
+        downloadService.setMaxConnectionsPerHost(maxConnections);
+    }
+
+    /**
+     * Applies the bandwidth settings, running downloads are throttled without restarting.
+     */
+    public void setBandwidthLimits(AppConfig appConfig) {
+        downloadService.setBandwidthLimits(appConfig);
+    }
+
+    /**
+     * Applies the archive extraction settings.
+     */
+    public void setExtractionOptions(AppConfig appConfig) {
+        downloadService.setExtractionOptions(appConfig);
+    }
+
+    /**
+     * Sets the DAT files finished downloads are verified against.
+     */
+    public void setDatFiles(List<String> datFiles) {
+        downloadService.setDatFiles(datFiles);
+    }
+
     public void cancelDownload(DownloadTask task) {
         if (task != null) {
             downloadService.cancelTask(task);
@@ -68,4 +107,8 @@ public class DownloadViewModel {
     public ObjectProperty<DownloadTask> selectedTaskProperty() {
         return selectedTaskProperty;
     }
+
+    public IntegerProperty concurrencyLimitProperty() {
+        return downloadService.concurrencyLimitProperty();
+    }
 }
\ No newline at end of file
@@ -19,6 +19,7 @@ public class SearchViewModel {
     private final ListProperty<RomFile> searchResultsProperty = new SimpleListProperty<>(FXCollections.observableArrayList());
     private final ObjectProperty<RomFile> selectedRomProperty = new SimpleObjectProperty<>();
     private final BooleanProperty downloadButtonEnabledProperty = new SimpleBooleanProperty(false);
+    private final BooleanProperty searchAllPlatformsProperty = new SimpleBooleanProperty(false);
 
     public SearchViewModel(RomScraperService romScraperService, DownloadService downloadService, ConfigViewModel configViewModel) {
         this.romScraperService = romScraperService;
@@ -38,6 +39,14 @@ public class SearchViewModel {
 
         String region = configViewModel.getSelectedRegion();
 
+        // Global mode searches every loaded platform catalog and ranks the hits together
+        if (searchAllPlatformsProperty.get()) {
+            romScraperService.searchAllPlatforms(searchTerm, region, results -> {
+                searchResultsProperty.set(FXCollections.observableArrayList(results));
+            });
+            return;
+        }
+
         romScraperService.searchRoms(searchTerm, region, results -> {
             searchResultsProperty.set(FXCollections.observableArrayList(results));
         });
@@ -66,4 +75,8 @@ public class SearchViewModel {
     public BooleanProperty downloadButtonEnabledProperty() {
         return downloadButtonEnabledProperty;
     }
+
+    public BooleanProperty searchAllPlatformsProperty() {
+        return searchAllPlatformsProperty;
+    }
 }
\ No newline at end of file
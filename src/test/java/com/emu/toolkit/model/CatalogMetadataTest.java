@@ -0,0 +1,55 @@
+package com.emu.toolkit.model;
+
+import com.emu.toolkit.util.RomNameParser;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CatalogMetadataTest {
+
+    private static CatalogMetadata parse(String... names) {
+        RomCatalog.Builder builder = RomCatalog.builder("http://example.com/");
+        for (String name : names) {
+            builder.add(name, name);
+        }
+        return CatalogMetadata.parse(builder.build());
+    }
+
+    @Test
+    void releasesOfOneGameShareTheTitleId() {
+        CatalogMetadata metadata = parse("Game (USA).zip", "Game (Europe).zip", "Other (USA).zip");
+        assertEquals(2, metadata.getTitleCount());
+        assertEquals(metadata.getTitleId(0), metadata.getTitleId(1));
+        assertNotEquals(metadata.getTitleId(0), metadata.getTitleId(2));
+        assertEquals("game", metadata.getTitle(metadata.getTitleId(0)));
+    }
+
+    @Test
+    void discsOfOneReleaseShareTheReleaseIdButNotTheRevisionGroup() {
+        CatalogMetadata metadata = parse(
+                "Riven (USA) (Disc 1).chd",
+                "Riven (USA) (Disc 1) (Rev 1).chd",
+                "Riven (USA) (Disc 2).chd",
+                "Riven (Europe) (Disc 1).chd");
+
+        // Both revisions of disc 1 are one revision group
+        assertEquals(metadata.getRevisionGroupId(0), metadata.getRevisionGroupId(1));
+        assertNotEquals(metadata.getRevisionGroupId(0), metadata.getRevisionGroupId(2));
+        assertEquals(3, metadata.getRevisionGroupCount());
+
+        assertEquals(metadata.getReleaseId(0), metadata.getReleaseId(1));
+        assertEquals(metadata.getReleaseId(0), metadata.getReleaseId(2));
+        assertNotEquals(metadata.getReleaseId(0), metadata.getReleaseId(3));
+    }
+
+    @Test
+    void storesParsedFields() {
+        CatalogMetadata metadata = parse("Game (Japan, USA) (En,Ja) (Rev 2) (Beta).zip");
+        assertEquals(Region.JAPAN.bit() | Region.USA.bit(), metadata.getRegionMask(0));
+        assertEquals(RomNameParser.parseLanguages("En,Ja"), metadata.getLanguageMask(0));
+        assertEquals(2, metadata.getRevision(0));
+        assertTrue(metadata.hasFlag(0, RomNameParser.FLAG_BETA));
+    }
+}
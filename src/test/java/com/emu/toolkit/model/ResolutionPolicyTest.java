@@ -0,0 +1,153 @@
+package com.emu.toolkit.model;
+
+import com.emu.toolkit.util.RomNameParser;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResolutionPolicyTest {
+    private static final List<String> DEFAULT_KEYWORDS = List.of("Beta", "Proto", "Demo", "Sample", "Kiosk");
+
+    private static ResolutionPolicy policy(String regions, int minScoreMargin) {
+        return new ResolutionPolicy(true, ResolutionPolicy.parseRegions(regions), true, true,
+                DEFAULT_KEYWORDS, minScoreMargin);
+    }
+
+    private static List<RomFile> roms(String... names) {
+        List<RomFile> roms = new ArrayList<>();
+        for (String name : names) {
+            roms.add(new RomFile(name, "http://example.com/" + name));
+        }
+        return roms;
+    }
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {
+            // Keywords in the title are not tags
+            "Demon's Crest (USA).zip                  | false",
+            "Demolition Man (USA).zip                 | false",
+            "Prototype (USA).zip                      | false",
+            "Betrayal at Krondor (USA).zip            | false",
+            "Sampler Pack (Europe).zip                | false",
+            "Kiosk Simulator (USA).zip                | false",
+            "Super Metroid (Japan, USA) (En,Ja).zip   | false",
+            // Keywords as whole words in a tag
+            "Star Fox (USA) (Beta).zip                | true",
+            "Star Fox (USA) (Beta 2).zip              | true",
+            "Star Fox (USA) (Proto 1).zip             | true",
+            "Star Fox (USA) (Kiosk Demo).zip          | true",
+            "Star Fox (USA) (Sample).zip              | true",
+            "Star Fox (USA) (Demo) (2003-05-01).zip   | true",
+            // Bad dumps are always excluded
+            "Star Fox (USA) [b].zip                   | true",
+            "Star Fox (USA) [!].zip                   | false",
+    })
+    void excludesKeywordsOnlyInTags(String name, boolean excluded) {
+        ResolutionPolicy policy = policy("USA", 0);
+        assertEquals(excluded, policy.isExcluded(name, RomNameParser.parse(name).getFlags()), name);
+    }
+
+    @Test
+    void keywordNamingAFlagExcludesByTheFlag() {
+        ResolutionPolicy policy = new ResolutionPolicy(true, List.of(), false, false, List.of("Proto"), 0);
+        assertTrue(policy.isExcluded("Star Fox (USA)", RomNameParser.FLAG_PROTO));
+        assertFalse(policy.isExcluded("Star Fox (USA)", RomNameParser.FLAG_BETA));
+    }
+
+    @Test
+    void multiWordKeywordMatchesConsecutiveWords() {
+        ResolutionPolicy policy = new ResolutionPolicy(true, List.of(), false, false, List.of("Virtual Console"), 0);
+        assertTrue(policy.isExcluded("Zelda (USA) (Virtual Console).zip", 0));
+        assertFalse(policy.isExcluded("Zelda (USA) (Console, Virtual).zip", 0));
+        assertFalse(policy.isExcluded("Virtual Console Zelda (USA).zip", 0));
+    }
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {
+            // Region priority beats everything else
+            "Game (USA).zip           | Game (Europe) (Rev 3) [!].zip",
+            "Game (Europe).zip        | Game (Japan) (Rev 1).zip",
+            // Then the latest revision
+            "Game (USA) (Rev 2).zip   | Game (USA) (Rev 1).zip",
+            "Game (USA) (Rev B).zip   | Game (USA) (Rev A).zip",
+            // Then verified dumps
+            "Game (USA) [!].zip       | Game (USA).zip",
+            // Pre-releases rank below every release of the same region
+            "Game (USA).zip           | Game (USA) (Rev 9) (Beta) [!].zip",
+            // No listed region at all ranks last
+            "Game (Japan).zip         | Game (Korea).zip",
+    })
+    void scoresPreferredReleaseHigher(String better, String worse) {
+        ResolutionPolicy policy = policy("USA, Europe, Japan", 0);
+        assertTrue(score(policy, better) > score(policy, worse), better + " should beat " + worse);
+    }
+
+    private static int score(ResolutionPolicy policy, String name) {
+        RomNameParser.ParsedName parsed = RomNameParser.parse(name);
+        return policy.score(parsed.getRegionMask(), parsed.getRevision(), parsed.getFlags());
+    }
+
+    @Test
+    void choosesBestReleaseOfOneGame() {
+        List<RomFile> matches = roms("Game (Europe).zip", "Game (USA).zip", "Game (Japan).zip");
+        assertEquals("Game (USA).zip", policy("USA, Europe", 0).choose("Game", matches).getName());
+    }
+
+    @Test
+    void exactTitleWinsOverOtherGames() {
+        List<RomFile> matches = roms("Game 2 (USA).zip", "Game (Europe).zip", "Game (USA).zip");
+        assertEquals("Game (USA).zip", policy("USA", 0).choose("game", matches).getName());
+    }
+
+    @Test
+    void differentGamesAreLeftForManualSelection() {
+        List<RomFile> matches = roms("Game 2 (USA).zip", "Game 3 (USA).zip");
+        assertNull(policy("USA", 0).choose("Game", matches));
+    }
+
+    @Test
+    void closeScoresAreLeftForManualSelection() {
+        List<RomFile> matches = roms("Game (USA).zip", "Game (USA) [!].zip");
+        // The verified bonus is smaller than this margin
+        assertNull(policy("USA", 100).choose("Game", matches));
+        assertEquals("Game (USA) [!].zip", policy("USA", 0).choose("Game", matches).getName());
+    }
+
+    @Test
+    void identicalScoresAreNeverResolved() {
+        List<RomFile> matches = roms("Game (USA) (En).zip", "Game (USA) (Fr).zip");
+        assertNull(policy("USA", 0).choose("Game", matches));
+    }
+
+    @Test
+    void excludedCandidatesAreSkipped() {
+        List<RomFile> matches = roms("Game (USA) (Beta).zip", "Game (Japan).zip");
+        assertEquals("Game (Japan).zip", policy("USA, Japan", 0).choose("Game", matches).getName());
+        assertNull(policy("USA", 0).choose("Game", roms("Game (USA) (Beta).zip", "Game (USA) [b].zip")));
+    }
+
+    @Test
+    void disabledPolicyNeverChooses() {
+        assertNull(ResolutionPolicy.MANUAL.choose("Game", roms("Game (USA).zip")));
+    }
+
+    @Test
+    void automaticResolutionIsOptIn() {
+        assertFalse(ResolutionPolicy.fromConfig(new AppConfig()).isEnabled());
+    }
+
+    @Test
+    void parsesRegionListSkippingUnknownAndDuplicateNames() {
+        assertEquals(List.of(Region.USA, Region.EUROPE, Region.JAPAN),
+                ResolutionPolicy.parseRegions("USA, EUR, Atlantis, usa, Japan"));
+        assertEquals(List.of(), ResolutionPolicy.parseRegions(null));
+    }
+}
@@ -0,0 +1,176 @@
+package com.emu.toolkit.service;
+
+import com.emu.toolkit.model.DownloadTask;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class DownloadJournalTest {
+    @TempDir
+    File folder;
+
+    private File journalFile() {
+        return new File(folder, "downloads.journal");
+    }
+
+    private static DownloadTask task(String name) {
+        return new DownloadTask(name, "http://example.com/" + name, "/roms/" + name);
+    }
+
+    /**
+     * Replay the journal file as the next start of the application would
+     */
+    private List<DownloadJournal.Entry> restart() {
+        DownloadJournal journal = new DownloadJournal(journalFile());
+        List<DownloadJournal.Entry> entries = journal.replay();
+        journal.close();
+        return entries;
+    }
+
+    @Test
+    void replaysUnfinishedDownloadsInQueueOrder() {
+        DownloadJournal journal = new DownloadJournal(journalFile());
+        journal.replay();
+        DownloadTask first = task("a.zip");
+        DownloadTask second = task("b.zip");
+        DownloadTask third = task("c.zip");
+        DownloadTask fourth = task("d.zip");
+        journal.recordEnqueued(List.of(first, second, third, fourth));
+        journal.recordStarted(first);
+        journal.recordProgress(first, 1024);
+        journal.recordProgress(first, 4096);
+        journal.recordCompleted(second);
+        journal.recordCancelled(third);
+        journal.close();
+
+        List<DownloadJournal.Entry> entries = restart();
+        assertEquals(2, entries.size());
+        assertEquals("/roms/a.zip", entries.get(0).getDestination());
+        assertEquals("http://example.com/a.zip", entries.get(0).getUrl());
+        assertEquals("a.zip", entries.get(0).getFilename());
+        assertEquals(4096, entries.get(0).getBytesDone());
+        assertEquals("/roms/d.zip", entries.get(1).getDestination());
+        assertEquals(0, entries.get(1).getBytesDone());
+    }
+
+    @Test
+    void keepsTabsAndNewlinesInFieldsIntact() {
+        DownloadJournal journal = new DownloadJournal(journalFile());
+        journal.replay();
+        DownloadTask task = new DownloadTask("odd\tname\n.zip", "http://example.com/a\\b", "/roms/odd\tname\n.zip");
+        journal.recordEnqueued(List.of(task));
+        journal.recordProgress(task, 7);
+        journal.close();
+
+        List<DownloadJournal.Entry> entries = restart();
+        assertEquals(1, entries.size());
+        assertEquals("odd\tname\n.zip", entries.get(0).getFilename());
+        assertEquals("http://example.com/a\\b", entries.get(0).getUrl());
+        assertEquals("/roms/odd\tname\n.zip", entries.get(0).getDestination());
+        assertEquals(7, entries.get(0).getBytesDone());
+    }
+
+    @Test
+    void skipsATornLastLine() throws IOException {
+        DownloadJournal journal = new DownloadJournal(journalFile());
+        journal.replay();
+        DownloadTask task = task("a.zip");
+        journal.recordEnqueued(List.of(task));
+        journal.recordProgress(task, 100);
+        journal.close();
+
+        // A crash in the middle of writing the next events
+        Files.writeString(journalFile().toPath(), "PROG\t/roms/a.zip\t\nENQ\t/roms/b.zip",
+                StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        List<DownloadJournal.Entry> entries = restart();
+        assertEquals(1, entries.size());
+        assertEquals(100, entries.get(0).getBytesDone());
+
+        // The replay rewrote the journal without the torn lines
+        List<String> lines = Files.readAllLines(journalFile().toPath(), StandardCharsets.UTF_8);
+        assertEquals(List.of("ENQ\t/roms/a.zip\thttp://example.com/a.zip\ta.zip", "PROG\t/roms/a.zip\t100"), lines);
+    }
+
+    @Test
+    void compactsOnceSupersededLinesDominate() throws IOException {
+        DownloadJournal journal = new DownloadJournal(journalFile());
+        journal.replay();
+        DownloadTask finished = task("a.zip");
+        DownloadTask running = task("b.zip");
+        journal.recordEnqueued(List.of(finished, running));
+        for (int i = 1; i <= 500; i++) {
+            journal.recordProgress(finished, i);
+        }
+        journal.recordCompleted(finished);
+
+        // Not enough stale lines yet
+        journal.compactIfNeeded();
+        assertTrue(Files.readAllLines(journalFile().toPath()).size() > 500);
+
+        for (int i = 1; i <= 600; i++) {
+            journal.recordProgress(running, i);
+        }
+        journal.compactIfNeeded();
+        List<String> lines = Files.readAllLines(journalFile().toPath(), StandardCharsets.UTF_8);
+        assertEquals(List.of("ENQ\t/roms/b.zip\thttp://example.com/b.zip\tb.zip", "PROG\t/roms/b.zip\t600"), lines);
+
+        // Appending continues after the compacted lines
+        journal.recordCompleted(running);
+        journal.close();
+        assertTrue(restart().isEmpty());
+    }
+
+    @Test
+    void keepsTheJournalWhenCompactionFails() throws IOException {
+        // Writes to /dev/full fail like a full disk
+        File full = new File("/dev/full");
+        assumeTrue(full.exists());
+
+        DownloadJournal journal = new DownloadJournal(journalFile());
+        journal.replay();
+        DownloadTask finished = task("a.zip");
+        DownloadTask running = task("b.zip");
+        DownloadTask queued = task("c.zip");
+        journal.recordEnqueued(List.of(finished, running, queued));
+        for (int i = 1; i <= 1100; i++) {
+            journal.recordProgress(finished, i);
+        }
+        journal.recordCompleted(finished);
+        journal.recordProgress(running, 42);
+
+        File tempFile = new File(folder, "downloads.journal.tmp");
+        Files.createSymbolicLink(tempFile.toPath(), full.toPath());
+        journal.compactIfNeeded();
+        assertFalse(Files.exists(tempFile.toPath(), LinkOption.NOFOLLOW_LINKS));
+
+        // Appending continues on the old journal
+        journal.recordProgress(running, 84);
+        journal.close();
+
+        List<DownloadJournal.Entry> entries = restart();
+        assertEquals(2, entries.size());
+        assertEquals("/roms/b.zip", entries.get(0).getDestination());
+        assertEquals(84, entries.get(0).getBytesDone());
+        assertEquals("/roms/c.zip", entries.get(1).getDestination());
+    }
+
+    @Test
+    void startsEmptyWithoutAJournalFile() {
+        assertTrue(restart().isEmpty());
+        assertTrue(journalFile().exists());
+        assertFalse(new File(folder, "downloads.journal.tmp").exists());
+    }
+}
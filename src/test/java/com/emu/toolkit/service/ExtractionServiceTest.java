@@ -0,0 +1,76 @@
+package com.emu.toolkit.service;
+
+import com.emu.toolkit.model.DatIndex;
+import com.emu.toolkit.model.DownloadTask;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.SocketTimeoutException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ExtractionServiceTest {
+    private final ExtractionService extractionService = new ExtractionService(() -> DatIndex.EMPTY);
+
+    private static byte[] zip(int entries, int entrySize) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            // Stored, so the data offsets are predictable
+            zip.setLevel(0);
+            for (int i = 0; i < entries; i++) {
+                zip.putNextEntry(new ZipEntry("rom" + i + ".bin"));
+                zip.write(new byte[entrySize]);
+                zip.closeEntry();
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static DownloadTask task() {
+        return new DownloadTask("set.zip", "http://example.com/set.zip", "set.zip");
+    }
+
+    @Test
+    void extractsStreamedZip(@TempDir Path dir) throws IOException {
+        int files = extractionService.extractZip(new ByteArrayInputStream(zip(3, 1000)), dir.toFile(), task());
+
+        assertEquals(3, files);
+        assertArrayEquals(new byte[1000], Files.readAllBytes(dir.resolve("rom2.bin")));
+    }
+
+    @Test
+    void failedStreamLeavesNoFilesBehind(@TempDir Path dir) throws IOException {
+        byte[] data = zip(3, 100_000);
+        // Times out somewhere in the last entry, after the first two were written
+        InputStream stalling = new FilterInputStream(new ByteArrayInputStream(data)) {
+            private int position;
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                if (position > 250_000) {
+                    throw new SocketTimeoutException("Read timed out");
+                }
+                int bytesRead = super.read(buffer, offset, length);
+                position += Math.max(bytesRead, 0);
+                return bytesRead;
+            }
+        };
+
+        assertThrows(SocketTimeoutException.class, () -> extractionService.extractZip(stalling, dir.toFile(), task()));
+        try (var remaining = Files.list(dir)) {
+            assertFalse(remaining.findAny().isPresent());
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.emu.toolkit.service;
+
+import com.emu.toolkit.util.HostLimiter;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+class SegmentedDownloadTest {
+    private static final int LENGTH = 3 * 1024 * 1024 + 17;
+
+    private final byte[] data = new byte[LENGTH];
+    private final ExecutorService workers = Executors.newCachedThreadPool();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final AtomicInteger rangeRequests = new AtomicInteger();
+    private HttpServer server;
+    private String url;
+
+    /**
+     * How the test server answers a range request
+     */
+    private enum RangeMode { HONOR, IGNORE, FIRST_FAILS_OTHERS_STALL }
+
+    private volatile RangeMode rangeMode = RangeMode.HONOR;
+    // Whether a plain request stalls after its headers
+    private volatile boolean stallFullResponse;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        new Random(7).nextBytes(data);
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/file.bin", this::handle);
+        server.start();
+        url = "http://127.0.0.1:" + server.getAddress().getPort() + "/file.bin";
+    }
+
+    @AfterEach
+    void stopServer() {
+        release.countDown();
+        server.stop(0);
+        workers.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String range = exchange.getRequestHeaders().getFirst("Range");
+        try (OutputStream out = exchange.getResponseBody()) {
+            if (range == null || rangeMode == RangeMode.IGNORE) {
+                exchange.sendResponseHeaders(200, LENGTH);
+                if (range == null && stallFullResponse) {
+                    out.write(data, 0, 1024);
+                    out.flush();
+                    awaitRelease();
+                    return;
+                }
+                out.write(data);
+                return;
+            }
+
+            String[] bounds = range.substring("bytes=".length()).split("-");
+            int from = Integer.parseInt(bounds[0]);
+            int to = bounds.length > 1 ? Integer.parseInt(bounds[1]) : LENGTH - 1;
+            if (rangeMode == RangeMode.FIRST_FAILS_OTHERS_STALL) {
+                if (rangeRequests.getAndIncrement() == 0) {
+                    exchange.sendResponseHeaders(500, -1);
+                } else {
+                    exchange.sendResponseHeaders(206, to - from + 1);
+                    awaitRelease();
+                }
+                return;
+            }
+            exchange.getResponseHeaders().set("Content-Range", "bytes " + from + "-" + to + "/" + LENGTH);
+            exchange.sendResponseHeaders(206, to - from + 1);
+            out.write(data, from, to - from + 1);
+        } catch (IOException e) {
+            // The client dropped the connection
+        }
+    }
+
+    private void awaitRelease() {
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private HttpURLConnection open() throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        assertEquals(200, connection.getResponseCode());
+        return connection;
+    }
+
+    private SegmentedDownload download(File file, HostLimiter hostLimiter, ExecutorService executor) {
+        return new SegmentedDownload(url, file, LENGTH, hostLimiter, executor);
+    }
+
+    private void assertDownloaded(File file, SegmentedDownload segmented) throws IOException {
+        assertArrayEquals(data, Files.readAllBytes(file.toPath()));
+        CRC32 crc32 = new CRC32();
+        crc32.update(data);
+        assertEquals(LENGTH, segmented.getContiguousPrefix().getLength());
+        assertEquals(crc32.getValue(), segmented.getContiguousPrefix().getCrc32());
+    }
+
+    @Test
+    void downloadsOverSeveralConnections(@TempDir Path dir) throws Exception {
+        File file = dir.resolve("file.bin").toFile();
+        HostLimiter hostLimiter = new HostLimiter(3);
+        SegmentedDownload segmented = download(file, hostLimiter, workers);
+
+        segmented.run(open(), 0, 0, 4, (bytesDone, connections) -> { }, 10);
+
+        assertDownloaded(file, segmented);
+        assertEquals(0, hostLimiter.getActive("127.0.0.1"));
+    }
+
+    @Test
+    void finishesOnOneConnectionWhenRangesAreIgnored(@TempDir Path dir) throws Exception {
+        rangeMode = RangeMode.IGNORE;
+        File file = dir.resolve("file.bin").toFile();
+        HostLimiter hostLimiter = new HostLimiter(3);
+        SegmentedDownload segmented = download(file, hostLimiter, workers);
+
+        segmented.run(open(), 0, 0, 4, (bytesDone, connections) -> { }, 10);
+
+        assertDownloaded(file, segmented);
+        assertEquals(0, hostLimiter.getActive("127.0.0.1"));
+    }
+
+    @Test
+    void resumedDownloadSkipsWrittenBytesWhenRangesAreIgnored(@TempDir Path dir) throws Exception {
+        int offset = 1_000_000;
+        File file = dir.resolve("file.bin").toFile();
+        Files.write(file.toPath(), Arrays.copyOf(data, offset));
+        CRC32 offsetCrc32 = new CRC32();
+        offsetCrc32.update(data, 0, offset);
+
+        // The resume request itself got a range, the extra connections don't
+        HttpURLConnection primary = (HttpURLConnection) new URL(url).openConnection();
+        primary.setRequestProperty("Range", "bytes=" + offset + "-");
+        assertEquals(206, primary.getResponseCode());
+        rangeMode = RangeMode.IGNORE;
+
+        SegmentedDownload segmented = download(file, new HostLimiter(3), workers);
+        segmented.run(primary, offset, offsetCrc32.getValue(), 4, (bytesDone, connections) -> { }, 10);
+
+        assertDownloaded(file, segmented);
+    }
+
+    @Test
+    void failingWorkerStopsTheOthersRightAway(@TempDir Path dir) throws Exception {
+        rangeMode = RangeMode.FIRST_FAILS_OTHERS_STALL;
+        stallFullResponse = true;
+        File file = dir.resolve("file.bin").toFile();
+        SegmentedDownload segmented = download(file, new HostLimiter(2), workers);
+        HttpURLConnection primary = open();
+
+        // Well below the 30 second read timeout the stalled connections would otherwise wait out
+        IOException failure = assertTimeoutPreemptively(Duration.ofSeconds(10), () -> assertThrows(IOException.class,
+                () -> segmented.run(primary, 0, 0, 3, (bytesDone, connections) -> { }, 10)));
+        assertEquals("Range request failed (HTTP 500)", failure.getMessage());
+    }
+
+    @Test
+    void rejectedWorkersDoNotHangTheDownload(@TempDir Path dir) throws Exception {
+        ExecutorService shutDown = Executors.newSingleThreadExecutor();
+        shutDown.shutdown();
+        File file = dir.resolve("file.bin").toFile();
+        HostLimiter hostLimiter = new HostLimiter(3);
+        SegmentedDownload segmented = download(file, hostLimiter, shutDown);
+        HttpURLConnection primary = open();
+
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> assertThrows(IOException.class,
+                () -> segmented.run(primary, 0, 0, 4, (bytesDone, connections) -> { }, 10)));
+        assertEquals(0, hostLimiter.getActive("127.0.0.1"));
+    }
+}
@@ -0,0 +1,93 @@
+package com.emu.toolkit.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ChecksumsTest {
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {
+            "''          | 00000000 | d41d8cd98f00b204e9800998ecf8427e | da39a3ee5e6b4b0d3255bfef95601890afd80709",
+            "abc         | 352441c2 | 900150983cd24fb0d6963f7d28e17f72 | a9993e364706816aba3e25717850c26c9cd0d89d",
+            "hello world | 0d4a1185 | 5eb63bbbe01eeed093cb22bb8f5acdc3 | 2aae6c35c94fcfb415dbe95f408b9ce91ee846ed",
+    })
+    void computesKnownChecksums(String data, String crc32, String md5, String sha1) {
+        byte[] bytes = data.getBytes(StandardCharsets.UTF_8);
+        Checksums checksums = new Checksums(true, true, true);
+        // Fed in two chunks, the result doesn't depend on how the data arrives
+        checksums.update(bytes, 0, bytes.length / 2);
+        checksums.update(bytes, bytes.length / 2, bytes.length - bytes.length / 2);
+
+        assertEquals(bytes.length, checksums.getLength());
+        assertEquals(crc32, checksums.getCrc32());
+        assertEquals(md5, checksums.getMd5());
+        assertEquals(sha1, checksums.getSha1());
+        // Digests are finished once and kept
+        assertEquals(md5, checksums.getMd5());
+    }
+
+    @Test
+    void computesOnlyTheRequestedAlgorithms() {
+        Checksums checksums = new Checksums(false, true, false);
+        assertNull(checksums.getCrc32());
+        assertEquals(-1, checksums.getCrc32Value());
+        assertNull(checksums.getSha1());
+    }
+
+    @Test
+    void combinedCrc32EqualsCrc32OfTheWhole() {
+        Random random = new Random(3);
+        for (int round = 0; round < 500; round++) {
+            byte[] data = new byte[random.nextInt(100_000)];
+            random.nextBytes(data);
+            int split = random.nextInt(data.length + 1);
+
+            CRC32 first = new CRC32();
+            first.update(data, 0, split);
+            CRC32 second = new CRC32();
+            second.update(data, split, data.length - split);
+            CRC32 whole = new CRC32();
+            whole.update(data);
+
+            assertEquals(whole.getValue(),
+                    Checksums.combineCrc32(first.getValue(), second.getValue(), data.length - split));
+        }
+    }
+
+    @Test
+    void continuesAfterAPrefixHashedEarlier() {
+        byte[] data = "the part on disk and the part still to come".getBytes(StandardCharsets.UTF_8);
+        int prefix = 16;
+        CRC32 prefixCrc = new CRC32();
+        prefixCrc.update(data, 0, prefix);
+
+        Checksums resumed = Checksums.continueFrom(prefixCrc.getValue(), prefix);
+        resumed.update(data, prefix, data.length - prefix);
+
+        Checksums whole = new Checksums(true, false, false);
+        whole.update(data, 0, data.length);
+        assertEquals(whole.getCrc32(), resumed.getCrc32());
+        assertEquals(data.length, resumed.getLength());
+        // Digests can't be continued
+        assertNull(resumed.getMd5());
+    }
+
+    @Test
+    void continuesFromACompleteFile() {
+        byte[] data = "segmented".getBytes(StandardCharsets.UTF_8);
+        CRC32 crc = new CRC32();
+        crc.update(data);
+
+        Checksums complete = Checksums.continueFrom(crc.getValue(), data.length);
+        assertEquals(String.format("%08x", crc.getValue()), complete.getCrc32());
+        assertEquals(data.length, complete.getLength());
+    }
+}
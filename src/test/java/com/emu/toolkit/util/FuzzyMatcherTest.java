@@ -0,0 +1,105 @@
+package com.emu.toolkit.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FuzzyMatcherTest {
+
+    private static int distance(String pattern, String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        return new FuzzyMatcher(pattern).distance(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Edit distance between the pattern and its best matching substring of the text, with the
+     * textbook dynamic program. A match may start and end anywhere in the text.
+     */
+    private static int referenceDistance(String pattern, String text) {
+        byte[] p = pattern.toLowerCase().getBytes(StandardCharsets.UTF_8);
+        byte[] t = text.toLowerCase().getBytes(StandardCharsets.UTF_8);
+        int[] previous = new int[p.length + 1];
+        int[] current = new int[p.length + 1];
+        for (int i = 0; i <= p.length; i++) {
+            previous[i] = i;
+        }
+        int best = p.length;
+        for (byte c : t) {
+            current[0] = 0;
+            for (int i = 1; i <= p.length; i++) {
+                int substitution = previous[i - 1] + (p[i - 1] == c ? 0 : 1);
+                current[i] = Math.min(substitution, Math.min(previous[i] + 1, current[i - 1] + 1));
+            }
+            best = Math.min(best, current[p.length]);
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return best;
+    }
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {
+            "mario      | Super Mario World (USA).zip | 0",
+            "MARIO      | Super Mario World (USA).zip | 0",
+            "marip      | Super Mario World (USA).zip | 1",
+            "mrio       | Super Mario World (USA).zip | 1",
+            "maario     | Super Mario World (USA).zip | 1",
+            "zelda      | Super Mario World (USA).zip | 3",
+            "abc        | ''                          | 3",
+            "''         | anything                    | 0",
+    })
+    void measuresEditsToTheBestSubstring(String pattern, String text, int distance) {
+        assertEquals(distance, distance(pattern, text));
+    }
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {
+            "mario | Super Mario World | 100",
+            "marip | Super Mario World | 80",
+            "zelda | ''                | 0",
+            "''    | Super Mario World | 0",
+    })
+    void scoresSimilarityAsPercentage(String pattern, String text, int score) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        assertEquals(score, new FuzzyMatcher(pattern).score(bytes, 0, bytes.length));
+    }
+
+    @Test
+    void onlyLooksAtTheGivenRange() {
+        byte[] text = "mario|zelda".getBytes(StandardCharsets.UTF_8);
+        FuzzyMatcher matcher = new FuzzyMatcher("mario");
+        assertEquals(0, matcher.distance(text, 0, 5));
+        assertEquals(4, matcher.distance(text, 6, text.length));
+    }
+
+    @Test
+    void agreesWithTheDynamicProgramOnRandomInput() {
+        Random random = new Random(7);
+        String alphabet = "abcdAB -";
+        for (int round = 0; round < 2000; round++) {
+            String pattern = randomText(random, alphabet, random.nextInt(FuzzyMatcher.MAX_PATTERN_LENGTH) + 1);
+            String text = randomText(random, alphabet, random.nextInt(100));
+            assertEquals(referenceDistance(pattern, text), distance(pattern, text), pattern + " in " + text);
+        }
+    }
+
+    @Test
+    void truncatesLongPatterns() {
+        String pattern = "x".repeat(FuzzyMatcher.MAX_PATTERN_LENGTH + 10);
+        assertEquals(0, distance(pattern, "x".repeat(FuzzyMatcher.MAX_PATTERN_LENGTH)));
+    }
+
+    private static String randomText(Random random, String alphabet, int length) {
+        StringBuilder text = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,76 @@
+package com.emu.toolkit.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PartFileTest {
+
+    @Test
+    void savedStateLoadsBack(@TempDir Path dir) throws IOException {
+        PartFile part = new PartFile(dir.resolve("game.zip").toFile());
+        Files.write(part.getDataFile().toPath(), new byte[100]);
+
+        part.save(new PartFile.State("http://example.com/game.zip", "\"abc\"", null, 100, 0xcafebabeL));
+        PartFile.State state = part.load();
+
+        assertEquals("http://example.com/game.zip", state.getUrl());
+        assertEquals("\"abc\"", state.getEtag());
+        assertNull(state.getLastModified());
+        assertEquals(100, state.getBytesWritten());
+        assertEquals(0xcafebabeL, state.getCrc32());
+    }
+
+    @Test
+    void unknownCrc32IsNotRecorded(@TempDir Path dir) throws IOException {
+        PartFile part = new PartFile(dir.resolve("game.zip").toFile());
+        Files.write(part.getDataFile().toPath(), new byte[10]);
+
+        part.save(new PartFile.State("http://example.com/game.zip", null, null, 10, -1));
+        assertEquals(-1, part.load().getCrc32());
+    }
+
+    @Test
+    void neverTrustsMoreThanIsOnDisk(@TempDir Path dir) throws IOException {
+        PartFile part = new PartFile(dir.resolve("game.zip").toFile());
+        Files.write(part.getDataFile().toPath(), new byte[100]);
+        part.save(new PartFile.State("http://example.com/game.zip", null, null, 100, 0x1234L));
+
+        // The data lost its tail after the checkpoint, so the CRC32 no longer covers it
+        part.truncate(60);
+        PartFile.State state = part.load();
+        assertEquals(60, state.getBytesWritten());
+        assertEquals(-1, state.getCrc32());
+    }
+
+    @Test
+    void nothingToResumeWithoutBothFiles(@TempDir Path dir) throws IOException {
+        PartFile part = new PartFile(dir.resolve("game.zip").toFile());
+        assertNull(part.load());
+
+        Files.write(part.getDataFile().toPath(), new byte[10]);
+        assertNull(part.load());
+    }
+
+    @Test
+    void completeMovesDataIntoPlace(@TempDir Path dir) throws IOException {
+        File destination = dir.resolve("game.zip").toFile();
+        PartFile part = new PartFile(destination);
+        Files.write(part.getDataFile().toPath(), new byte[] {1, 2, 3});
+        part.save(new PartFile.State("http://example.com/game.zip", null, null, 3, -1));
+
+        assertTrue(part.complete());
+        assertEquals(3, destination.length());
+        assertFalse(part.getDataFile().exists());
+        assertNull(part.load());
+    }
+}
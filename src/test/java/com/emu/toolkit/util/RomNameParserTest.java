@@ -0,0 +1,129 @@
+package com.emu.toolkit.util;
+
+import com.emu.toolkit.model.Region;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RomNameParserTest {
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {
+            "Super Metroid (Japan, USA) (En,Ja) (Rev 1).zip | super metroid",
+            "  Final   Fantasy VII (USA) (Disc 1).chd       | final fantasy vii",
+            "Tetris.gb                                      | tetris",
+            "Tetris                                         | tetris",
+            "Pokemon - Red Version (USA, Europe) [!].zip    | pokemon - red version",
+    })
+    void titleIsTheLowercasedTextBeforeTheFirstTag(String name, String title) {
+        assertEquals(title, RomNameParser.parse(name).getTitle());
+    }
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {
+            "Game (USA).zip          | USA",
+            "Game (Japan, USA).zip   | Japan, USA",
+            "Game (World).zip        | World",
+            "Game (Europe) (En).zip  | Europe",
+    })
+    void parsesRegions(String name, String regions) {
+        int mask = 0;
+        for (String region : regions.split(",")) {
+            mask |= Region.fromName(region).bit();
+        }
+        assertEquals(mask, RomNameParser.parse(name).getRegionMask());
+    }
+
+    @Test
+    void parsesLanguages() {
+        RomNameParser.ParsedName parsed = RomNameParser.parse("Game (Europe) (En,Fr,De).zip");
+        assertEquals(RomNameParser.parseLanguages("En,Fr,De"), parsed.getLanguageMask());
+        assertEquals(0, RomNameParser.parseLanguages("En,Klingon"));
+        assertEquals(RomNameParser.parseLanguages("Zh"), RomNameParser.parseLanguages("Zh-Hant"));
+    }
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {
+            "Game (USA).zip          | 0",
+            "Game (USA) (Rev 1).zip  | 1",
+            "Game (USA) (Rev 12).zip | 12",
+            "Game (USA) (Rev A).zip  | 1",
+            "Game (USA) (Rev C).zip  | 3",
+    })
+    void parsesRevisions(String name, int revision) {
+        assertEquals(revision, RomNameParser.parse(name).getRevision());
+    }
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {
+            "Game (USA) (Beta).zip        | 1",
+            "Game (USA) (Beta 2).zip      | 1",
+            "Game (USA) (Proto).zip       | 2",
+            "Game (USA) (Demo).zip        | 4",
+            "Game (USA) (Sample).zip      | 8",
+            "Game (USA) (Pirate).zip      | 16",
+            "Game (USA) (Unl).zip         | 32",
+            "Game (USA) [!].zip           | 64",
+            "Game (USA) [b].zip           | 128",
+            "Game (USA) [b1].zip          | 128",
+            "Demon's Crest (USA).zip      | 0",
+            "Prototype (USA).zip          | 0",
+    })
+    void parsesFlagsFromTagsOnly(String name, int flags) {
+        assertEquals(flags, RomNameParser.parse(name).getFlags());
+    }
+
+    @Test
+    void revisionsOfOneReleaseShareTheRevisionKey() {
+        assertEquals(RomNameParser.parse("Game (USA).zip").getRevisionKey(),
+                RomNameParser.parse("Game (USA) (Rev 2).zip").getRevisionKey());
+        assertNotEquals(RomNameParser.parse("Game (USA).zip").getRevisionKey(),
+                RomNameParser.parse("Game (Europe).zip").getRevisionKey());
+    }
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {
+            "Final Fantasy VII (USA) (Disc 1).chd     | Final Fantasy VII (USA) (Disc 2).chd",
+            "Myst (USA) (Disc 1) (Rev 1).chd          | Myst (USA) (Disc 2).chd",
+            "Game (Japan) (Side A).fds                | Game (Japan) (Side B).fds",
+            "Game (Europe) (Disk 1 of 3).adf          | Game (Europe) (Disk 3 of 3).adf",
+    })
+    void discsOfOneReleaseShareTheReleaseKeyButNotTheRevisionKey(String disc, String otherDisc) {
+        RomNameParser.ParsedName first = RomNameParser.parse(disc);
+        RomNameParser.ParsedName second = RomNameParser.parse(otherDisc);
+        assertEquals(first.getTitle(), second.getTitle());
+        assertEquals(first.getReleaseKey(), second.getReleaseKey());
+        assertNotEquals(first.getRevisionKey(), second.getRevisionKey());
+    }
+
+    @Test
+    void discsOfDifferentReleasesHaveDifferentReleaseKeys() {
+        assertNotEquals(RomNameParser.parse("Final Fantasy VII (USA) (Disc 1).chd").getReleaseKey(),
+                RomNameParser.parse("Final Fantasy VII (Europe) (Disc 1).chd").getReleaseKey());
+    }
+
+    @Test
+    void singleDiscReleaseKeyEqualsRevisionKey() {
+        RomNameParser.ParsedName parsed = RomNameParser.parse("Game (USA) (Rev 1).zip");
+        assertEquals(parsed.getRevisionKey(), parsed.getReleaseKey());
+    }
+
+    @Test
+    void listsTagContentsInOrder() {
+        assertEquals(List.of("Japan, USA", "En,Ja", "!"), RomNameParser.tags("Game (Japan, USA) ( En,Ja ) [!].zip"));
+        assertTrue(RomNameParser.tags("Tetris.gb").isEmpty());
+        // An unclosed tag is part of the name
+        assertTrue(RomNameParser.tags("Game (USA.zip").isEmpty());
+    }
+
+    @Test
+    void normalizesTitles() {
+        assertEquals("the legend of zelda", RomNameParser.normalizeTitle("  The  Legend\tof Zelda "));
+    }
+}
@@ -0,0 +1,80 @@
+package com.emu.toolkit.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TitleListReaderTest {
+    @TempDir
+    File folder;
+
+    static Stream<Arguments> lists() {
+        return Stream.of(
+                Arguments.of("want.txt",
+                        "\uFEFFSuper Metroid\n# a comment\n\n  Chrono Trigger  \r\nEarthBound",
+                        List.of("Super Metroid", "Chrono Trigger", "EarthBound")),
+                Arguments.of("want.csv",
+                        "Title,Year\n\"Final Fantasy, VI\",1994\n\"The \"\"Best\"\" Game\",1995\nTetris,1989\n,2000",
+                        List.of("Final Fantasy, VI", "The \"Best\" Game", "Tetris")),
+                Arguments.of("want.csv",
+                        "Super Metroid,1994\nTetris",
+                        List.of("Super Metroid", "Tetris")),
+                Arguments.of("playlist.m3u",
+                        "#EXTM3U\n#EXTINF:-1,ignored\n/roms/snes/Super Metroid (USA).sfc\nC:\\roms\\Tetris.gb\nNoExtension",
+                        List.of("Super Metroid (USA)", "Tetris", "NoExtension")),
+                Arguments.of("Nintendo - SNES.lpl",
+                        "{\"version\":\"1.5\",\"items\":[{\"path\":\"/x.sfc\",\"label\":\"Super Metroid\"},"
+                                + "{\"path\":\"/y.sfc\",\"label\":\" \"},{\"label\":\"Chrono Trigger\",\"crc32\":\"DETECT\"}]}",
+                        List.of("Super Metroid", "Chrono Trigger")),
+                Arguments.of("No-Intro.dat",
+                        "<?xml version=\"1.0\"?>\n<datafile><header><name>SNES</name></header>"
+                                + "<game name=\"Super Metroid (Japan, USA) (En,Ja)\"><rom name=\"a.sfc\" size=\"1\"/></game>"
+                                + "<game name=\"Tetris (World)\"><rom name=\"b.sfc\" size=\"1\"/></game></datafile>",
+                        List.of("Super Metroid (Japan, USA) (En,Ja)", "Tetris (World)"))
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("lists")
+    void readsTitlesInFileOrder(String fileName, String content, List<String> expected) throws IOException {
+        File file = new File(folder, fileName);
+        Files.writeString(file.toPath(), content, StandardCharsets.UTF_8);
+
+        List<String> titles = new ArrayList<>();
+        TitleListReader.read(file, titles::add, fraction -> { });
+        assertEquals(expected, titles);
+    }
+
+    @Test
+    void reportsProgressUpToTheWholeFile() throws IOException {
+        File file = new File(folder, "want.txt");
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            content.append("Game ").append(i).append('\n');
+        }
+        Files.writeString(file.toPath(), content, StandardCharsets.UTF_8);
+
+        List<Double> fractions = new ArrayList<>();
+        int[] count = new int[1];
+        TitleListReader.read(file, title -> count[0]++, fractions::add);
+
+        assertEquals(10000, count[0]);
+        for (int i = 1; i < fractions.size(); i++) {
+            assertTrue(fractions.get(i) >= fractions.get(i - 1), "progress went backwards");
+        }
+        assertEquals(1.0, fractions.get(fractions.size() - 1));
+    }
+}
@@ -0,0 +1,64 @@
+package com.emu.toolkit.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenBucketTest {
+
+    @Test
+    void unlimitedBucketNeverWaits() {
+        TokenBucket bucket = new TokenBucket(0);
+
+        assertTimeoutPreemptively(Duration.ofSeconds(1), () -> bucket.acquire(Integer.MAX_VALUE));
+    }
+
+    @Test
+    void raisingTheRateWakesWaitingCallers() throws Exception {
+        // The bucket starts empty, at 1 KiB/s this read owes about a minute
+        TokenBucket bucket = new TokenBucket(1024);
+        CompletableFuture<Void> waiter = acquireAsync(bucket, 64 * 1024);
+
+        Thread.sleep(200);
+        assertFalse(waiter.isDone());
+
+        bucket.setRate(1024 * 1024 * 1024);
+        waiter.get(2, TimeUnit.SECONDS);
+        assertTrue(waiter.isDone());
+    }
+
+    @Test
+    void disablingTheLimitReleasesWaitersAndForgivesDebt() throws Exception {
+        TokenBucket bucket = new TokenBucket(1024);
+        CompletableFuture<Void> waiter = acquireAsync(bucket, 64 * 1024);
+
+        Thread.sleep(200);
+        bucket.setRate(0);
+        waiter.get(2, TimeUnit.SECONDS);
+
+        // Turned back on, the old debt doesn't block the next read
+        bucket.setRate(1024);
+        assertTimeoutPreemptively(Duration.ofSeconds(1), () -> bucket.acquire(1));
+    }
+
+    private static CompletableFuture<Void> acquireAsync(TokenBucket bucket, int bytes) {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        Thread thread = new Thread(() -> {
+            try {
+                bucket.acquire(bytes);
+                done.complete(null);
+            } catch (InterruptedException e) {
+                done.completeExceptionally(e);
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+        return done;
+    }
+}
@@ -0,0 +1,88 @@
+package com.emu.toolkit.util;
+
+import com.emu.toolkit.model.RomCatalog;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+class TrigramIndexTest {
+    private static final String[] NAMES = {
+            "Super Mario World (USA).zip",
+            "Super Mario Kart (USA).zip",
+            "Super Metroid (Japan, USA) (En,Ja).zip",
+            "Mario Paint (Japan, USA).zip",
+            "The Legend of Zelda - A Link to the Past (USA).zip",
+            "Pokémon - Edición Roja (Spain).zip",
+            "Tetris.gb",
+            "aaaa.zip",
+    };
+
+    private static TrigramIndex index(String... names) {
+        RomCatalog.Builder builder = RomCatalog.builder("http://example.com/");
+        for (String name : names) {
+            builder.add(name, name);
+        }
+        return TrigramIndex.build(builder.build());
+    }
+
+    /**
+     * Ids of the names containing the query, ignoring ASCII case, by scanning every name
+     */
+    private static int[] scan(String[] names, String query) {
+        List<Integer> ids = new ArrayList<>();
+        for (int id = 0; id < names.length; id++) {
+            if (foldAscii(names[id]).contains(foldAscii(query))) {
+                ids.add(id);
+            }
+        }
+        return ids.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static String foldAscii(String text) {
+        StringBuilder folded = new StringBuilder(text.length());
+        for (char c : text.toCharArray()) {
+            folded.append(c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c);
+        }
+        return folded.toString();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "mario", "MARIO", "Super M", "world", "(USA)", "Ja", "z", "", "aaa", "aaaa", "aaaaa",
+            "Pokémon", "Edición", "zelda - a link", "Kart (Japan", "not in the catalog", ".gb",
+    })
+    void findsExactlyTheNamesContainingTheQuery(String query) {
+        assertArrayEquals(scan(NAMES, query), index(NAMES).findContaining(query), query);
+    }
+
+    @Test
+    void agreesWithScanningOnRandomCatalogs() {
+        Random random = new Random(42);
+        String alphabet = "abcAB (),";
+        for (int round = 0; round < 50; round++) {
+            String[] names = new String[random.nextInt(40) + 1];
+            for (int i = 0; i < names.length; i++) {
+                names[i] = randomText(random, alphabet, random.nextInt(20) + 1);
+            }
+            TrigramIndex index = index(names);
+            for (int q = 0; q < 20; q++) {
+                String query = randomText(random, alphabet, random.nextInt(5) + 1);
+                assertArrayEquals(scan(names, query), index.findContaining(query), query);
+            }
+        }
+    }
+
+    private static String randomText(Random random, String alphabet, int length) {
+        StringBuilder text = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return text.toString();
+    }
+}